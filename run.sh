@@ -1,10 +1,37 @@
 #!/bin/bash
 set -e
 
-echo "Compiling..."
-mkdir -p out
-javac $(find src/main/java -name "*.java") -d out
+# Usage: ./run.sh [--cds | --check]
+#   --cds    start from an AppCDS archive (created on first use) for faster cold starts
+#   --check  run the self-checks (SelfCheck) instead of the server
 
-echo "Starting web server..."
-java -cp out com.codeoff.WebServer
+JAR=out/codeoff.jar
+CDS_ARCHIVE=out/codeoff.jsa
+
+# BatchValidator uses the incubating Vector API when the module is present
+VECTOR_MODULE=(--add-modules jdk.incubator.vector)
+
+if [ ! -f "$JAR" ] || [ -n "$(find src/main/java -name '*.java' -newer "$JAR")" ]; then
+    echo "Compiling..."
+    rm -rf out/classes
+    mkdir -p out/classes
+    javac -encoding UTF-8 "${VECTOR_MODULE[@]}" $(find src/main/java -name "*.java") -d out/classes
+    # AppCDS only archives classes loaded from jars, not from class directories
+    jar cf "$JAR" -C out/classes .
+fi
 
+if [ "$1" = "--check" ]; then
+    exec java "${VECTOR_MODULE[@]}" -cp "$JAR" com.codeoff.SelfCheck
+fi
+
+JAVA_OPTS=("${VECTOR_MODULE[@]}")
+if [ "$1" = "--cds" ]; then
+    if [ ! -f "$CDS_ARCHIVE" ] || [ "$JAR" -nt "$CDS_ARCHIVE" ]; then
+        echo "Creating AppCDS archive..."
+        java "${VECTOR_MODULE[@]}" -XX:ArchiveClassesAtExit="$CDS_ARCHIVE" -cp "$JAR" com.codeoff.WebServer --cds-training
+    fi
+    JAVA_OPTS+=(-XX:SharedArchiveFile="$CDS_ARCHIVE")
+fi
+
+echo "Starting web server..."
+java "${JAVA_OPTS[@]}" -cp "$JAR" com.codeoff.WebServer
@@ -0,0 +1,317 @@
+package com.codeoff;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides how to run a search from its estimated cost.
+ *
+ * The cost of a request is estimated in search nodes with a few
+ * {@link SearchTreeEstimator} probes (capped by the request's own node
+ * limit) and converted to CPU milliseconds with the measured solver
+ * throughput (warm-up nodes/second). Then:
+ *
+ *  - ADMIT:     at most cheapMillis; runs at once on the cheap pool
+ *  - QUEUE:     at most maxMillis; waits for the heavy pool
+ *  - DOWNGRADE: more than maxMillis; runs on the heavy pool bounded to
+ *               maxMillis worth of nodes and may return a partial result
+ *  - REJECT:    the heavy pool's CPU budget (sum of the estimates it has
+ *               accepted and not finished) would exceed heavyBudgetMillis
+ *
+ * Cheap and heavy work run on separate pools, so cheap requests never wait
+ * behind long ones; the heavy queue runs the shortest estimate first.
+ * Other work with a known cost (Monte Carlo estimates, index builds) takes
+ * a QUEUE ticket for that cost from the same budget ({@link #admitWork}).
+ * Batches, whose puzzles run on their own pool, go to a small bulk pool
+ * with a bounded queue instead ({@link #executeBulk}).
+ * Estimates cannot see the effect of value order on time-to-first-solution,
+ * so every run is also bounded by its class: a cheap run that exhausts its
+ * cap can be escalated to the heavy pool (see {@link #escalate(Ticket)}).
+ *
+ * Configuration (system properties):
+ *   admission.cheapMillis        cheap-pool threshold (default 100)
+ *   admission.maxMillis          longest run before downgrading (default 10000)
+ *   admission.heavyBudgetMillis  estimated work the heavy pool may hold (default 120000)
+ *   admission.heavyThreads       heavy-pool threads (default half the cores)
+ *   admission.probes             estimator probes per request (default 256)
+ *   admission.bulkThreads        batches running at once (default 1)
+ *   admission.bulkQueue          batches waiting before new ones are refused (default 4)
+ *   admission.nodesPerSecond     throughput before warm-up has measured it (default 10000000)
+ */
+public final class AdmissionController implements AutoCloseable {
+
+    public enum Decision { ADMIT, QUEUE, DOWNGRADE, REJECT }
+
+    // Cheap runs are capped at this multiple of cheapMillis before escalation
+    private static final int CHEAP_SLACK = 10;
+
+    /**
+     * Outcome of an admission check: the decision, the estimate behind it,
+     * the node limit the run must use and the heavy-pool budget it holds.
+     */
+    public static final class Ticket {
+        public final Decision decision;
+        public final double estimatedNodes;
+        public final long estimatedMillis;
+        public final long nodeLimit;
+        final long requestLimit;
+        final int nodesPerUnit;
+        final long reservedMillis;
+
+        Ticket(Decision decision, double estimatedNodes, long estimatedMillis, long nodeLimit,
+               long requestLimit, int nodesPerUnit, long reservedMillis) {
+            this.decision = decision;
+            this.estimatedNodes = estimatedNodes;
+            this.estimatedMillis = estimatedMillis;
+            this.nodeLimit = nodeLimit;
+            this.requestLimit = requestLimit;
+            this.nodesPerUnit = nodesPerUnit;
+            this.reservedMillis = reservedMillis;
+        }
+
+        public boolean isHeavy() {
+            return decision == Decision.QUEUE || decision == Decision.DOWNGRADE;
+        }
+
+        /**
+         * Whether a run that stopped at this ticket's node limit may be
+         * retried on the heavy pool (the class cap, not the request's own
+         * limit, cut it short).
+         */
+        public boolean escalates() {
+            return decision == Decision.ADMIT && nodeLimit < requestLimit;
+        }
+
+        /** The spec with this ticket's node limit. */
+        public PuzzleSpec apply(PuzzleSpec spec) {
+            return nodeLimit == spec.nodeLimit ? spec : spec.withSearch(spec.valueOrder, spec.seed, nodeLimit);
+        }
+
+        /** Header value describing the decision, e.g. "queue; estimate=2300ms". */
+        public String describe() {
+            String s = decision.name().toLowerCase(Locale.ROOT) + "; estimate=" + estimatedMillis + "ms";
+            return nodeLimit == Long.MAX_VALUE ? s : s + "; nodeLimit=" + nodeLimit;
+        }
+    }
+
+    private final long cheapMillis;
+    private final long maxMillis;
+    private final long heavyBudgetMillis;
+    private final int probes;
+    private volatile double nodesPerMilli;
+
+    private final ExecutorService cheapPool;
+    private final ThreadPoolExecutor heavyPool;
+    private final ThreadPoolExecutor bulkPool;
+    private final AtomicLong heavyReserved = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public AdmissionController(long cheapMillis, long maxMillis, long heavyBudgetMillis,
+                               int heavyThreads, int probes, double nodesPerSecond,
+                               int bulkThreads, int bulkQueue) {
+        this.cheapMillis = cheapMillis;
+        this.maxMillis = maxMillis;
+        this.heavyBudgetMillis = heavyBudgetMillis;
+        this.probes = probes;
+        setNodesPerSecond(nodesPerSecond);
+
+        this.cheapPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), daemon("cheap"));
+        this.heavyPool = new ThreadPoolExecutor(heavyThreads, heavyThreads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), daemon("heavy"));
+        this.bulkPool = new ThreadPoolExecutor(bulkThreads, bulkThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, bulkQueue)), daemon("bulk"));
+    }
+
+    public static AdmissionController fromSystemProperties() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return new AdmissionController(
+                Long.getLong("admission.cheapMillis", 100L),
+                Long.getLong("admission.maxMillis", 10_000L),
+                Long.getLong("admission.heavyBudgetMillis", 120_000L),
+                Integer.getInteger("admission.heavyThreads", Math.max(1, cores / 2)),
+                Integer.getInteger("admission.probes", 256),
+                Double.parseDouble(System.getProperty("admission.nodesPerSecond", "10000000")),
+                Integer.getInteger("admission.bulkThreads", 1),
+                Integer.getInteger("admission.bulkQueue", 4));
+    }
+
+    /** Solver throughput used to convert node estimates into time; set from warm-up. */
+    public void setNodesPerSecond(double nodesPerSecond) {
+        if (nodesPerSecond > 0) {
+            this.nodesPerMilli = nodesPerSecond / 1000.0;
+        }
+    }
+
+    /**
+     * Admission check for a solve. The local and meet-in-the-middle engines
+     * have no single search tree to probe; they start on the cheap pool
+     * (local-search moves costed as one node per cell) and are escalated
+     * if they hit the cheap cap.
+     */
+    public Ticket admit(PuzzleSpec spec) {
+        if (spec.engine == PuzzleSpec.Engine.LOCAL) {
+            return decide(0, spec.nodeLimit, spec.cellCount());
+        }
+        if (spec.engine == PuzzleSpec.Engine.MITM) {
+            return decide(0, spec.nodeLimit, 1);
+        }
+        SearchTreeEstimator.Estimate estimate = SearchTreeEstimator.forSpec(spec).estimate(probes, spec.seed);
+        return decide(estimate.firstSolutionNodes(), spec.nodeLimit, 1);
+    }
+
+    /** Admission check for a C1 count capped at maxNodes. */
+    public Ticket admitCount(long maxNodes) {
+        SearchTreeEstimator.Estimate estimate = SearchTreeEstimator.forC1Count().estimate(probes, 0L);
+        return decide(estimate.treeNodes, maxNodes, 1);
+    }
+
+    /**
+     * Heavy-pool ticket for work costed up front in search nodes, or REJECT
+     * if the budget is full. Work costing more than the whole budget
+     * reserves all of it, so it runs alone rather than never.
+     */
+    public Ticket admitWork(double estimatedNodes) {
+        long millis = (long) Math.min(Long.MAX_VALUE, Math.ceil(estimatedNodes / nodesPerMilli));
+        return reserve(Decision.QUEUE, estimatedNodes, millis, Long.MAX_VALUE, Long.MAX_VALUE, 1,
+                Math.min(millis, heavyBudgetMillis));
+    }
+
+    /**
+     * Heavy-pool ticket for a cheap run that stopped at its class cap, or
+     * REJECT if the heavy budget is full.
+     */
+    public Ticket escalate(Ticket cheap) {
+        long heavyCap = nodesFor(maxMillis) / cheap.nodesPerUnit;
+        Decision decision = heavyCap < cheap.requestLimit ? Decision.DOWNGRADE : Decision.QUEUE;
+        return reserve(decision, cheap.estimatedNodes, maxMillis, Math.min(heavyCap, cheap.requestLimit),
+                cheap.requestLimit, cheap.nodesPerUnit, maxMillis);
+    }
+
+    /**
+     * Runs the task on the pool the ticket selects; the ticket's heavy
+     * budget is released when it finishes.
+     */
+    public void execute(Ticket ticket, Runnable task) {
+        if (!ticket.isHeavy()) {
+            cheapPool.execute(task);
+            return;
+        }
+        heavyPool.execute(new Job(ticket.estimatedMillis, sequence.getAndIncrement(), () -> {
+            try {
+                task.run();
+            } finally {
+                heavyReserved.addAndGet(-ticket.reservedMillis);
+            }
+        }));
+    }
+
+    /** Runs short work (index lookups, admission decisions) on the cheap pool. */
+    public void executeCheap(Runnable task) {
+        cheapPool.execute(task);
+    }
+
+    /**
+     * Queues a batch on the bulk pool; false if admission.bulkQueue batches
+     * are already waiting.
+     */
+    public boolean executeBulk(Runnable task) {
+        try {
+            bulkPool.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    public long heavyReservedMillis() {
+        return heavyReserved.get();
+    }
+
+    public int heavyQueueLength() {
+        return heavyPool.getQueue().size();
+    }
+
+    @Override
+    public void close() {
+        cheapPool.shutdownNow();
+        heavyPool.shutdownNow();
+        bulkPool.shutdownNow();
+    }
+
+    // ----------------- Policy -----------------
+
+    // nodesPerUnit: search nodes one unit of the limit costs (1, or cells per local-search move)
+    private Ticket decide(double estimatedNodes, long limit, int nodesPerUnit) {
+        double costNodes = Math.min(estimatedNodes, limit * (double) nodesPerUnit);
+        long millis = (long) Math.min(Long.MAX_VALUE, costNodes / nodesPerMilli);
+
+        if (millis <= cheapMillis) {
+            long cap = nodesFor(cheapMillis * CHEAP_SLACK) / nodesPerUnit;
+            return new Ticket(Decision.ADMIT, estimatedNodes, millis, Math.min(limit, cap), limit, nodesPerUnit, 0);
+        }
+        long heavyCap = nodesFor(maxMillis) / nodesPerUnit;
+        if (millis <= maxMillis) {
+            return reserve(Decision.QUEUE, estimatedNodes, millis, Math.min(limit, heavyCap), limit, nodesPerUnit, millis);
+        }
+        return reserve(Decision.DOWNGRADE, estimatedNodes, millis, heavyCap, limit, nodesPerUnit, maxMillis);
+    }
+
+    private Ticket reserve(Decision decision, double estimatedNodes, long millis, long nodeLimit,
+                           long requestLimit, int nodesPerUnit, long reserve) {
+        while (true) {
+            long current = heavyReserved.get();
+            if (current + reserve > heavyBudgetMillis) {
+                return new Ticket(Decision.REJECT, estimatedNodes, millis, nodeLimit, requestLimit, nodesPerUnit, 0);
+            }
+            if (heavyReserved.compareAndSet(current, current + reserve)) {
+                return new Ticket(decision, estimatedNodes, millis, nodeLimit, requestLimit, nodesPerUnit, reserve);
+            }
+        }
+    }
+
+    private long nodesFor(long millis) {
+        return Math.max(1, (long) (millis * nodesPerMilli));
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    // Heavy-pool entry: shortest estimate first, then arrival order
+    private static final class Job implements Runnable, Comparable<Job> {
+        final long millis;
+        final long seq;
+        final Runnable task;
+
+        Job(long millis, long seq, Runnable task) {
+            this.millis = millis;
+            this.seq = seq;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(Job o) {
+            int c = Long.compare(millis, o.millis);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.codeoff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Solves many puzzle variants in parallel.
+ *
+ * Specs are spread over a fixed pool (one thread per core by default);
+ * solvers share the precomputed {@link BoardTopology} for their board.
+ * Results are handed to the caller's sink in completion order, on the
+ * calling thread, as soon as each puzzle finishes.
+ */
+public class BatchSolver implements AutoCloseable {
+
+    /**
+     * One finished puzzle: its position in the submitted list and the outcome,
+     * or the error message if the solve failed.
+     */
+    public static final class Item {
+        public final int index;
+        public final SpecSolver.Outcome outcome;
+        public final String error;
+
+        Item(int index, SpecSolver.Outcome outcome, String error) {
+            this.index = index;
+            this.outcome = outcome;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Totals for a batch.
+     */
+    public static final class Summary {
+        public final int puzzles;
+        public final int solved;
+        public final long millis;
+
+        Summary(int puzzles, int solved, long millis) {
+            this.puzzles = puzzles;
+            this.solved = solved;
+            this.millis = millis;
+        }
+
+        public double puzzlesPerSecond() {
+            return puzzles * 1000.0 / Math.max(1, millis);
+        }
+    }
+
+    private final ExecutorService pool;
+    private final Function<PuzzleSpec, SpecSolver.Outcome> solver;
+
+    public BatchSolver() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public BatchSolver(int threads) {
+        this(threads, SpecSolver::solve);
+    }
+
+    /**
+     * @param solver solves one spec, e.g. {@link ResultStore#solve} to reuse stored results
+     */
+    public BatchSolver(int threads, Function<PuzzleSpec, SpecSolver.Outcome> solver) {
+        this.solver = solver;
+        AtomicInteger n = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "batch-solver-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Solves every spec and streams each result to the sink as it completes.
+     * Blocks until the whole batch is done; if the sink throws, the
+     * remaining puzzles are cancelled (running solves are interrupted and
+     * stop at their next sampled node) and the exception is rethrown.
+     */
+    public Summary solveAll(List<PuzzleSpec> specs, Consumer<Item> sink) throws InterruptedException {
+        long start = System.nanoTime();
+        ExecutorCompletionService<Item> completion = new ExecutorCompletionService<>(pool);
+        List<Future<Item>> futures = new ArrayList<>(specs.size());
+
+        for (int i = 0; i < specs.size(); i++) {
+            int index = i;
+            PuzzleSpec spec = specs.get(i);
+            futures.add(completion.submit(() -> {
+                try {
+                    return new Item(index, solver.apply(spec), null);
+                } catch (RuntimeException e) {
+                    return new Item(index, null, e.toString());
+                }
+            }));
+        }
+
+        int solved = 0;
+        boolean done = false;
+        try {
+            for (int i = 0; i < specs.size(); i++) {
+                Item item;
+                try {
+                    item = completion.take().get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+                if (item.outcome != null && item.outcome.solved()) solved++;
+                sink.accept(item);
+            }
+            done = true;
+        } finally {
+            if (!done) {
+                for (Future<Item> f : futures) f.cancel(true);
+            }
+        }
+
+        long millis = (System.nanoTime() - start) / 1_000_000L;
+        return new Summary(specs.size(), solved, millis);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
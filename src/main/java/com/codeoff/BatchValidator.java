@@ -0,0 +1,229 @@
+package com.codeoff;
+
+import java.lang.reflect.Constructor;
+
+/**
+ * Checks many candidate grids of one puzzle spec at once.
+ *
+ * Grids are passed as a {@link GridBlock} (structure-of-arrays) and the
+ * verdicts are written to a boolean array, one per grid. The rules are the
+ * same as the solvers' isValidSolution for the spec:
+ *
+ *  - values 1..N exactly once and the fixed seed in place
+ *  - C1: no consecutive orthogonal neighbours
+ *  - C2: no diagonal neighbours differing by 2 (5x5 puzzles)
+ *  - C3: prime-cell sum even (5x5 puzzles)
+ *  - C4: top-row median equals the target (median puzzle)
+ *  - C5: rook values in distinct rows and columns (6x6 puzzle)
+ *
+ * {@link #forSpec(PuzzleSpec)} returns the jdk.incubator.vector
+ * implementation when that module is present (java --add-modules
+ * jdk.incubator.vector, as run.sh does) and the scalar one otherwise;
+ * -Dcodeoff.vector=false forces the scalar path. Validators keep no
+ * per-call state and may be shared between threads.
+ */
+public abstract class BatchValidator {
+
+    private static final Constructor<? extends BatchValidator> VECTOR_CONSTRUCTOR = loadVectorImplementation();
+
+    final PuzzleSpec spec;
+    final int size;
+    final int cellCount;
+    final int maxValue;
+    final int fixedIndex;
+    final int fixedValue;
+
+    // Each orthogonal / diagonal pair once: edgeA[i] < edgeB[i]
+    final int[] orthogonalA;
+    final int[] orthogonalB;
+    final int[] diagonalA;
+    final int[] diagonalB;
+
+    // C3 cells (empty when C3 does not apply)
+    final int[] parityCells;
+    final boolean[] isParityCell;
+
+    // C4 target, 0 when C4 does not apply
+    final int medianTarget;
+
+    // C5 values as bit masks over value-1: low word 1..32, high word 33..64
+    final int[] rookValues;
+    final int rookLo;
+    final int rookHi;
+
+    BatchValidator(PuzzleSpec spec) {
+        this.spec = spec;
+        this.size = spec.size();
+        this.cellCount = spec.cellCount();
+        this.maxValue = cellCount;
+        this.fixedIndex = spec.fixedIndex;
+        this.fixedValue = spec.fixedValue;
+
+        BoardTopology topology = spec.topology();
+        int[][] orthogonal = edges(topology.orthogonalNeighbors);
+        this.orthogonalA = orthogonal[0];
+        this.orthogonalB = orthogonal[1];
+        int[][] diagonal = topology.diagonal ? edges(topology.diagonalNeighbors) : new int[2][0];
+        this.diagonalA = diagonal[0];
+        this.diagonalB = diagonal[1];
+
+        this.parityCells = spec.type == PuzzleSpec.Type.ROOK_6X6 ? new int[0] : Solver5x5.PRIME_CELL_INDICES.clone();
+        this.isParityCell = new boolean[cellCount];
+        for (int c : parityCells) isParityCell[c] = true;
+
+        this.medianTarget = spec.type == PuzzleSpec.Type.MEDIAN_5X5 ? spec.medianTarget : 0;
+
+        this.rookValues = spec.rookValues();
+        int lo = 0;
+        int hi = 0;
+        for (int v : rookValues) {
+            if (v <= 32) lo |= 1 << (v - 1);
+            else hi |= 1 << (v - 33);
+        }
+        this.rookLo = lo;
+        this.rookHi = hi;
+    }
+
+    /** Vector implementation if available, scalar otherwise. */
+    public static BatchValidator forSpec(PuzzleSpec spec) {
+        if (VECTOR_CONSTRUCTOR != null) {
+            try {
+                return VECTOR_CONSTRUCTOR.newInstance(spec);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot create vector validator", e);
+            }
+        }
+        return scalar(spec);
+    }
+
+    public static BatchValidator scalar(PuzzleSpec spec) {
+        return new ScalarBatchValidator(spec);
+    }
+
+    public static boolean isVectorAvailable() {
+        return VECTOR_CONSTRUCTOR != null;
+    }
+
+    /** Short description of the implementation, e.g. for logs and benchmarks. */
+    public abstract String implementation();
+
+    /**
+     * Validates the first block.count() grids; valid[g] is set for each.
+     */
+    public abstract void validate(GridBlock block, boolean[] valid);
+
+    public boolean[] validate(GridBlock block) {
+        boolean[] valid = new boolean[block.count()];
+        validate(block, valid);
+        return valid;
+    }
+
+    /**
+     * Scalar check of one grid in a block, written branch-light in the same
+     * shape as the vector kernel. Also used for the vector tail.
+     */
+    final boolean checkGrid(int[][] cells, int g) {
+        boolean bad = false;
+        int lo = 0;
+        int hi = 0;
+        int paritySum = 0;
+        int rookRows = 0;
+        int rookCols = 0;
+        int below = 0;
+        boolean medianPresent = false;
+
+        for (int c = 0; c < cellCount; c++) {
+            int v = cells[c][g];
+            bad |= v < 1 | v > maxValue;
+            int k = v - 1;
+            int bit = 1 << k;
+            boolean low = k < 32;
+            if (low) lo |= bit;
+            else hi |= bit;
+
+            if (isParityCell[c]) paritySum += v;
+
+            if ((bit & (low ? rookLo : rookHi)) != 0) {
+                int rowBit = 1 << (c / size);
+                int colBit = 1 << (c % size);
+                bad |= (rookRows & rowBit) != 0 | (rookCols & colBit) != 0;
+                rookRows |= rowBit;
+                rookCols |= colBit;
+            }
+
+            if (medianTarget != 0 && c < size) {
+                if (v < medianTarget) below++;
+                medianPresent |= v == medianTarget;
+            }
+        }
+
+        bad |= lo != fullLo() | hi != fullHi();
+        bad |= cells[fixedIndex][g] != fixedValue;
+        bad |= (paritySum & 1) != 0;
+        if (medianTarget != 0) {
+            bad |= !medianPresent | below != size / 2;
+        }
+
+        for (int e = 0; e < orthogonalA.length && !bad; e++) {
+            bad = Math.abs(cells[orthogonalA[e]][g] - cells[orthogonalB[e]][g]) == 1;
+        }
+        for (int e = 0; e < diagonalA.length && !bad; e++) {
+            bad = Math.abs(cells[diagonalA[e]][g] - cells[diagonalB[e]][g]) == 2;
+        }
+        return !bad;
+    }
+
+    final void requireShape(GridBlock block, boolean[] valid) {
+        if (block.size != size) {
+            throw new IllegalArgumentException("Block holds " + block.size + "x" + block.size
+                    + " grids, spec is " + size + "x" + size);
+        }
+        if (valid.length < block.count()) {
+            throw new IllegalArgumentException("Result array shorter than block");
+        }
+    }
+
+    // Seen-value masks of a permutation of 1..maxValue
+    final int fullLo() {
+        return maxValue >= 32 ? -1 : (1 << maxValue) - 1;
+    }
+
+    final int fullHi() {
+        return maxValue <= 32 ? 0 : maxValue == 64 ? -1 : (1 << (maxValue - 32)) - 1;
+    }
+
+    // ----------------- Helpers -----------------
+
+    private static int[][] edges(int[][] neighbors) {
+        int n = 0;
+        for (int a = 0; a < neighbors.length; a++) {
+            for (int b : neighbors[a]) if (a < b) n++;
+        }
+        int[][] edges = new int[2][n];
+        int i = 0;
+        for (int a = 0; a < neighbors.length; a++) {
+            for (int b : neighbors[a]) {
+                if (a < b) {
+                    edges[0][i] = a;
+                    edges[1][i] = b;
+                    i++;
+                }
+            }
+        }
+        return edges;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Constructor<? extends BatchValidator> loadVectorImplementation() {
+        if (!Boolean.parseBoolean(System.getProperty("codeoff.vector", "true"))) {
+            return null;
+        }
+        try {
+            // Initialising the class fails when jdk.incubator.vector is not in the module graph
+            Class<?> c = Class.forName("com.codeoff.VectorBatchValidator");
+            return (Constructor<? extends BatchValidator>) c.getDeclaredConstructor(PuzzleSpec.class);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.codeoff;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * Throughput of the batch validators against the solvers' isValidSolution.
+ *
+ * Builds a block of candidate grids from a few local-search solutions, half
+ * of them broken by one random swap, then times
+ *  - isValidSolution, one row-major grid at a time (the existing validators)
+ *  - the scalar BatchValidator on the structure-of-arrays block
+ *  - the vector BatchValidator, when jdk.incubator.vector is present
+ * and checks that all three agree on every grid.
+ *
+ * Usage: java --add-modules jdk.incubator.vector -cp out/codeoff.jar
+ *            com.codeoff.BatchValidatorBenchmark [spec] [grids] [rounds]
+ *   spec    puzzle spec in query form (default puzzle=solve5x5)
+ *   grids   grids per block (default 200000)
+ *   rounds  timed rounds; the best round is reported (default 10)
+ */
+public class BatchValidatorBenchmark {
+
+    private static final int SOLUTIONS = 8;
+
+    public static void main(String[] args) {
+        PuzzleSpec spec = PuzzleSpec.parse(args.length > 0 ? args[0] : "puzzle=solve5x5");
+        int grids = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        int[][] rowMajor = candidates(spec, grids);
+        GridBlock block = new GridBlock(spec.size(), grids);
+        for (int[] grid : rowMajor) block.add(grid);
+
+        System.out.println("Validating " + grids + " candidate grids for " + spec.toQuery());
+
+        Predicate<int[]> perGridValidator = perGridValidator(spec);
+        boolean[] expected = new boolean[grids];
+        long perGrid = best(rounds, () -> {
+            for (int g = 0; g < grids; g++) expected[g] = perGridValidator.test(rowMajor[g]);
+        });
+        report("isValidSolution (per grid)", grids, perGrid);
+
+        BatchValidator scalar = BatchValidator.scalar(spec);
+        boolean[] scalarValid = new boolean[grids];
+        long scalarNanos = best(rounds, () -> scalar.validate(block, scalarValid));
+        report("batch " + scalar.implementation(), grids, scalarNanos);
+        check(expected, scalarValid, scalar);
+
+        if (BatchValidator.isVectorAvailable()) {
+            BatchValidator vector = BatchValidator.forSpec(spec);
+            boolean[] vectorValid = new boolean[grids];
+            long vectorNanos = best(rounds, () -> vector.validate(block, vectorValid));
+            report("batch " + vector.implementation(), grids, vectorNanos);
+            check(expected, vectorValid, vector);
+        } else {
+            System.out.println("jdk.incubator.vector not available; run with --add-modules jdk.incubator.vector");
+        }
+
+        int valid = 0;
+        for (boolean v : expected) if (v) valid++;
+        System.out.println(valid + " of " + grids + " grids valid");
+    }
+
+    // A few distinct solutions, each copied and (half the time) broken by swapping two free cells
+    private static int[][] candidates(PuzzleSpec spec, int grids) {
+        int[][] solutions = new int[SOLUTIONS][];
+        for (int i = 0; i < SOLUTIONS; i++) {
+            PuzzleSpec local = spec.withEngine(PuzzleSpec.Engine.LOCAL)
+                    .withSearch(spec.valueOrder, spec.seed + i, Long.MAX_VALUE);
+            solutions[i] = new LocalSearchSolver(local).solve();
+            if (solutions[i] == null) {
+                throw new IllegalStateException("No solution found for " + local);
+            }
+        }
+
+        Random random = new Random(42);
+        int cellCount = spec.cellCount();
+        int[][] out = new int[grids][];
+        for (int g = 0; g < grids; g++) {
+            int[] grid = solutions[random.nextInt(SOLUTIONS)].clone();
+            if (random.nextBoolean()) {
+                int a;
+                int b;
+                do {
+                    a = random.nextInt(cellCount);
+                    b = random.nextInt(cellCount);
+                } while (a == b || a == spec.fixedIndex || b == spec.fixedIndex);
+                int t = grid[a];
+                grid[a] = grid[b];
+                grid[b] = t;
+            }
+            out[g] = grid;
+        }
+        return out;
+    }
+
+    private static Predicate<int[]> perGridValidator(PuzzleSpec spec) {
+        return switch (spec.type) {
+            case BASE_5X5 -> new Solver5x5(spec)::isValidSolution;
+            case MEDIAN_5X5 -> new Solver5x5Median(spec)::isValidSolution;
+            case ROOK_6X6 -> new Solver6x6(spec)::isValidSolution;
+        };
+    }
+
+    // Best of n rounds after as many untimed rounds, in nanoseconds
+    private static long best(int rounds, Runnable body) {
+        for (int i = 0; i < rounds; i++) body.run();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < rounds; i++) {
+            long t0 = System.nanoTime();
+            body.run();
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        return best;
+    }
+
+    private static void report(String name, int grids, long nanos) {
+        System.out.println(String.format(Locale.ROOT, "  %-36s %10.2f ms %14.0f grids/s",
+                name, nanos / 1e6, grids * 1e9 / Math.max(1, nanos)));
+    }
+
+    private static void check(boolean[] expected, boolean[] actual, BatchValidator validator) {
+        for (int g = 0; g < expected.length; g++) {
+            if (expected[g] != actual[g]) {
+                throw new IllegalStateException(validator.implementation() + " disagrees with isValidSolution on grid " + g);
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.codeoff;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable adjacency tables and fill order for a square board.
+ *
+ * Topologies are computed once per (size, constraint set, anchor cell) and
+ * shared by every solver instance, so constructing a solver per request no
+ * longer rebuilds neighbour lists or sorts a boxed fill order. The arrays
+ * are exposed package-private for the solvers' hot loops and must be
+ * treated as read-only.
+ *
+ * Fill order:
+ *  - First: the anchor cell (the fixed seed), if there is one.
+ *  - Then: remaining cells sorted by descending constraint degree
+ *          (orthogonal, plus diagonal when C2 applies), ties kept in
+ *          row-major order.
+ */
+public final class BoardTopology {
+
+    private static final ConcurrentHashMap<Long, BoardTopology> REGISTRY = new ConcurrentHashMap<>();
+
+    /** 5x5 board with C1 + C2, center cell filled first (Solver5x5, Solver5x5Median). */
+    public static final BoardTopology GRID_5X5_DIAGONAL = of(5, true, 12);
+
+    /** 6x6 board with C1 only, top-left cell filled first (Solver6x6). */
+    public static final BoardTopology GRID_6X6 = of(6, false, 0);
+
+    /** 5x5 board with C1 only and no fixed cell (SolverC1Counter). */
+    public static final BoardTopology GRID_5X5_C1 = of(5, false, -1);
+
+    public final int size;
+    public final int cellCount;
+    public final boolean diagonal;
+    public final int anchor;
+
+    final int[][] orthogonalNeighbors;
+    final int[][] diagonalNeighbors;
+    final int[] fillOrder;
+
+    private BoardTopology(int size, boolean diagonal, int anchor) {
+        this.size = size;
+        this.cellCount = size * size;
+        this.diagonal = diagonal;
+        this.anchor = anchor;
+        this.orthogonalNeighbors = buildNeighbors(size, new int[][]{{-1, 0}, {1, 0}, {0, -1}, {0, 1}});
+        this.diagonalNeighbors = buildNeighbors(size, new int[][]{{-1, -1}, {-1, 1}, {1, -1}, {1, 1}});
+        this.fillOrder = buildFillOrder();
+    }
+
+    /**
+     * Returns the shared topology for a board.
+     *
+     * @param size     board side length
+     * @param diagonal whether diagonal (C2) neighbours count towards the fill-order degree
+     * @param anchor   cell index filled first, or -1 for none
+     */
+    public static BoardTopology of(int size, boolean diagonal, int anchor) {
+        if (size < 1 || size > 16) {
+            throw new IllegalArgumentException("Unsupported board size: " + size);
+        }
+        if (anchor < -1 || anchor >= size * size) {
+            throw new IllegalArgumentException("Anchor cell out of range: " + anchor);
+        }
+        long key = ((long) size << 32) | ((diagonal ? 1L : 0L) << 31) | (anchor & 0x7FFFFFFFL);
+        return REGISTRY.computeIfAbsent(key, k -> new BoardTopology(size, diagonal, anchor));
+    }
+
+    /** Returns a copy of the fill order. */
+    public int[] fillOrder() {
+        return fillOrder.clone();
+    }
+
+    public int row(int idx) {
+        return idx / size;
+    }
+
+    public int col(int idx) {
+        return idx % size;
+    }
+
+    private int degree(int idx) {
+        return orthogonalNeighbors[idx].length + (diagonal ? diagonalNeighbors[idx].length : 0);
+    }
+
+    private static int[][] buildNeighbors(int size, int[][] deltas) {
+        int[][] neighbors = new int[size * size][];
+        int[] temp = new int[deltas.length];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int count = 0;
+                for (int[] d : deltas) {
+                    int nr = r + d[0];
+                    int nc = c + d[1];
+                    if (nr >= 0 && nr < size && nc >= 0 && nc < size) {
+                        temp[count++] = nr * size + nc;
+                    }
+                }
+                neighbors[r * size + c] = Arrays.copyOf(temp, count);
+            }
+        }
+        return neighbors;
+    }
+
+    private int[] buildFillOrder() {
+        int[] order = new int[cellCount];
+        int pos = 0;
+        if (anchor >= 0) {
+            order[pos++] = anchor;
+        }
+        int tailStart = pos;
+        for (int i = 0; i < cellCount; i++) {
+            if (i != anchor) {
+                order[pos++] = i;
+            }
+        }
+
+        // Stable insertion sort of the tail by descending degree
+        for (int i = tailStart + 1; i < cellCount; i++) {
+            int cell = order[i];
+            int deg = degree(cell);
+            int j = i - 1;
+            while (j >= tailStart && degree(order[j]) < deg) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = cell;
+        }
+        return order;
+    }
+}
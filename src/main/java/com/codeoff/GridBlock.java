@@ -0,0 +1,84 @@
+package com.codeoff;
+
+/**
+ * A block of same-sized grids stored as structure-of-arrays.
+ *
+ * cells[c][g] holds cell c (row-major index) of grid g, so one cell of many
+ * grids is contiguous in memory and can be loaded into vector lanes in one
+ * go. Grids are appended row-major with {@link #add(int[])} or written
+ * directly with {@link #set(int, int, int)}; a block is reused after
+ * {@link #clear()}.
+ */
+public final class GridBlock {
+
+    public final int size;
+    public final int cellCount;
+
+    final int[][] cells;
+    private int count;
+
+    public GridBlock(int size, int capacity) {
+        if (size < 1 || size > 8) {
+            throw new IllegalArgumentException("Unsupported board size: " + size);
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Block capacity must be positive");
+        }
+        this.size = size;
+        this.cellCount = size * size;
+        this.cells = new int[cellCount][capacity];
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int capacity() {
+        return cells[0].length;
+    }
+
+    public boolean isFull() {
+        return count == capacity();
+    }
+
+    /**
+     * Appends a row-major grid.
+     *
+     * @return the grid's index in the block
+     */
+    public int add(int[] grid) {
+        if (grid.length != cellCount) {
+            throw new IllegalArgumentException("Expected " + cellCount + " cells, got " + grid.length);
+        }
+        if (isFull()) {
+            throw new IllegalStateException("Block is full");
+        }
+        int g = count++;
+        for (int c = 0; c < cellCount; c++) {
+            cells[c][g] = grid[c];
+        }
+        return g;
+    }
+
+    /** Sets one cell of grid g; grows the block to include g. */
+    public void set(int g, int cell, int value) {
+        cells[cell][g] = value;
+        if (g >= count) count = g + 1;
+    }
+
+    /** Returns grid g in row-major order. */
+    public int[] get(int g) {
+        if (g < 0 || g >= count) {
+            throw new IndexOutOfBoundsException("Grid " + g + " of " + count);
+        }
+        int[] grid = new int[cellCount];
+        for (int c = 0; c < cellCount; c++) {
+            grid[c] = cells[c][g];
+        }
+        return grid;
+    }
+
+    public void clear() {
+        count = 0;
+    }
+}
@@ -0,0 +1,48 @@
+package com.codeoff;
+
+/**
+ * Compact binary grid format for machine clients.
+ *
+ * Layout (all fields unsigned bytes unless noted):
+ *   0-1  magic 'G' 'R'
+ *   2    format version (1)
+ *   3    rows
+ *   4    cols
+ *   5    bytes per cell (1 for values up to 255, otherwise 2, big-endian)
+ *   6..  rows * cols cell values in row-major order
+ *
+ * An unsolved puzzle is encoded as a 0 x 0 grid.
+ */
+public class GridCodec {
+
+    public static final String CONTENT_TYPE = "application/x-codeoff-grid";
+
+    private static final int VERSION = 1;
+
+    public static void write(ResponseBuffer out, int[] grid, int size) {
+        if (grid == null) {
+            writeHeader(out, 0, 0, 1);
+            return;
+        }
+        int width = cellWidth(grid);
+        writeHeader(out, size, size, width);
+        for (int v : grid) writeCell(out, v, width);
+    }
+
+    private static void writeHeader(ResponseBuffer out, int rows, int cols, int width) {
+        out.appendByte('G').appendByte('R').appendByte(VERSION)
+           .appendByte(rows).appendByte(cols).appendByte(width);
+    }
+
+    private static void writeCell(ResponseBuffer out, int v, int width) {
+        if (width == 2) out.appendByte(v >>> 8);
+        out.appendByte(v);
+    }
+
+    private static int cellWidth(int[] cells) {
+        for (int v : cells) {
+            if (v > 0xFF) return 2;
+        }
+        return 1;
+    }
+}
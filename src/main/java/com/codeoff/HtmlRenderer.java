@@ -1,11 +1,18 @@
 package com.codeoff;
 
-import java.util.Arrays;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 public class HtmlRenderer {
 
-    public static String renderHomePage() {
-        return """
+    private static final byte[] PAGE_START = bytes("<html><body><h2>");
+    private static final byte[] TITLE_END = bytes("</h2><pre>");
+    private static final byte[] GRID_END = bytes("</pre>");
+    private static final byte[] METRICS_START = bytes("<p><small>Engine: ");
+    private static final byte[] PAGE_END = bytes("<a href='/'>Back</a></body></html>");
+    private static final byte[] NO_SOLUTION = bytes("No solution found.\n");
+
+    private static final byte[] HOME_PAGE = bytes("""
         <html>
         <head><title>Codeoff Constraint Solver</title></head>
         <body style='font-family:Arial;'>
@@ -16,58 +23,128 @@ public class HtmlRenderer {
           <li><a href='/solveMedian'>Solve 5×5 Median Problem 2</a></li>
           <li><a href='/solve6x6'>Solve 6×6 Rook Problem 3</a></li>
           <li><a href='/countC1'>Run C1-Only Counter Problem 4</a></li>
+          <li><a href='/progress?puzzle=countC1'>Watch the C1-Only Counter live</a></li>
+          <li><a href='/estimate?puzzle=countC1'>Estimate the full C1-Only count</a></li>
+          <li><a href='/solutions?puzzle=solve5x5&prefix=1,3,5,4,2,6,8,10,7,9,11,12,14&k=0'>Browse 5×5 solutions by rank</a></li>
         </ul>
 
         </body></html>
-        """;
-    }
+        """);
 
-    public static String renderGrid(String title, int[] grid) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("<html><body><h2>").append(title).append("</h2><pre>");
+    // Subscribes to its own URL as an event stream (see WebServer /progress)
+    private static final byte[] PROGRESS_SCRIPT = bytes("""
+        </h2><pre id='progress'>Waiting for the search to start...</pre><pre id='result'></pre>
+        <script>
+        const progress = document.getElementById('progress');
+        const result = document.getElementById('result');
+        const events = new EventSource(location.href);
+        events.addEventListener('progress', e => {
+          const p = JSON.parse(e.data);
+          progress.textContent = 'Nodes: ' + p.nodes + ' (' + Math.round(p.nodesPerSecond) + '/s)'
+            + '\\nSolutions: ' + p.solutions + '\\nDepth: ' + p.depth
+            + '\\nExplored: ' + p.percent.toFixed(3) + '%\\nElapsed: ' + p.millis + ' ms'
+            + '\\nObservers: ' + p.observers;
+        });
+        events.addEventListener('done', e => {
+          events.close();
+          const r = JSON.parse(e.data);
+          if (r.text !== undefined) {
+            result.textContent = r.text;
+          } else if (!r.solved) {
+            result.textContent = 'No solution found.';
+          } else {
+            let rows = '';
+            for (let i = 0; i < r.grid.length; i++) {
+              rows += String(r.grid[i]).padStart(3) + ' ';
+              if (i % r.size == r.size - 1) rows += '\\n';
+            }
+            result.textContent = rows;
+          }
+        });
+        events.addEventListener('failed', e => {
+          events.close();
+          result.textContent = JSON.parse(e.data).error;
+        });
+        </script>
+        """);
 
-        for (int r = 0; r < 5; r++) {
-            for (int c = 0; c < 5; c++)
-                sb.append(String.format("%3d ", grid[r*5 + c]));
-            sb.append("\n");
-        }
+    public static void renderHomePage(ResponseBuffer out) {
+        out.append(HOME_PAGE);
+    }
 
-        sb.append("</pre><a href='/'>Back</a></body></html>");
-        return sb.toString();
+    /**
+     * Page that follows a running search through /progress and shows its result.
+     */
+    public static void renderProgressPage(ResponseBuffer out, String title) {
+        out.append(PAGE_START).append(title).append(PROGRESS_SCRIPT).append(PAGE_END);
     }
 
-    public static String renderGrid2D(String title, int[][] grid) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("<html><body><h2>").append(title).append("</h2><pre>");
+    public static void renderGrid(ResponseBuffer out, String title, int[] grid, int size, SolveMetrics metrics) {
+        beginPage(out, title);
+        writeGrid(out, grid, size);
+        endPage(out, metrics);
+    }
+
+    public static void renderText(ResponseBuffer out, String title, String text, SolveMetrics metrics) {
+        beginPage(out, title);
+        out.append(text);
+        endPage(out, metrics);
+    }
 
-        for (int[] row : grid) {
-            for (int v : row) sb.append(String.format("%3d ", v));
-            sb.append("\n");
+    public static void renderMedianResult(ResponseBuffer out, Result result, SolveMetrics metrics) {
+        if (result == null) {
+            renderGrid(out, "5×5 Median Solver", null, 5, metrics);
+            return;
         }
+        out.append("<html><body><h2>5×5 Median Solver</h2><p><b>Grid(5,5):</b> ")
+           .appendInt(result.bottomRight)
+           .append("</p><pre>");
+        writeGrid(out, result.grid, 5);
+        endPage(out, metrics);
+    }
 
-        sb.append("</pre><a href='/'>Back</a></body></html>");
-        return sb.toString();
+    public static void renderSolutions(ResponseBuffer out, String title, String summary, long[] ranks,
+                                       List<int[]> grids) {
+        beginPage(out, title);
+        writeSolutions(out, summary, ranks, grids);
+        endPage(out, null);
     }
 
-    public static String renderText(String title, String text) {
-        return "<html><body><h2>" + title + "</h2><pre>" +
-               text + "</pre><a href='/'>Back</a></body></html>";
+    // Index summary, then each 5x5 solution under its rank
+    static void writeSolutions(ResponseBuffer out, String summary, long[] ranks, List<int[]> grids) {
+        out.append(summary);
+        for (int i = 0; i < grids.size(); i++) {
+            out.append("\nk = ").appendInt(ranks[i]).appendByte('\n');
+            writeGrid(out, grids.get(i), 5);
+        }
     }
 
-    public static String renderMedianResult(Result result) {
-        return "<html><body><h2>5×5 Median Solver</h2>" +
-                "<p><b>Grid(5,5):</b> " + result.bottomRight +
-                "</p><pre>" + formatGrid(result.grid) +
-                "</pre><a href='/'>Back</a></body></html>";
+    // Writes a row-major grid as preformatted "%3d " cells
+    static void writeGrid(ResponseBuffer out, int[] g, int size) {
+        if (g == null) {
+            out.append(NO_SOLUTION);
+            return;
+        }
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) out.appendCell(g[r * size + c]);
+            out.appendByte('\n');
+        }
     }
 
-    private static String formatGrid(int[] g) {
-        StringBuilder sb = new StringBuilder();
-        for (int r=0;r<5;r++) {
-            for (int c=0;c<5;c++) sb.append(String.format("%3d ", g[r*5+c]));
-            sb.append("\n");
+    private static void beginPage(ResponseBuffer out, String title) {
+        out.append(PAGE_START).append(title).append(TITLE_END);
+    }
+
+    private static void endPage(ResponseBuffer out, SolveMetrics metrics) {
+        out.append(GRID_END);
+        if (metrics != null) {
+            out.append(METRICS_START).append(metrics.engine)
+               .append(", value order: ").append(metrics.valueOrder)
+               .append(", nodes: ").appendInt(metrics.nodes)
+               .append(", time: ").appendInt(metrics.millis).append(" ms")
+               .append(metrics.stored ? " (from result store)</small></p>" : "</small></p>");
         }
-        return sb.toString();
+        out.append(PAGE_END);
     }
 
     public static String renderWaitPage(String targetUrl) {
@@ -85,4 +162,8 @@ public class HtmlRenderer {
     </html>
     """.formatted(targetUrl);
 }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
 }
@@ -0,0 +1,166 @@
+package com.codeoff;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Renders solver results as JSON for API clients.
+ *
+ * Output is written straight into a {@link ResponseBuffer}; grids are
+ * emitted as a flat row-major array together with their dimensions.
+ */
+public class JsonRenderer {
+
+    public static void renderGrid(ResponseBuffer out, String title, int[] grid, int size, SolveMetrics metrics) {
+        beginObject(out, title);
+        writeGridFields(out, grid, size);
+        endObject(out, metrics);
+    }
+
+    public static void renderMedianResult(ResponseBuffer out, Result result, SolveMetrics metrics) {
+        if (result == null) {
+            renderGrid(out, "5×5 Median Solver", null, 5, metrics);
+            return;
+        }
+        beginObject(out, "5×5 Median Solver");
+        out.append(",\"bottomRight\":").appendInt(result.bottomRight);
+        writeGridFields(out, result.grid, 5);
+        endObject(out, metrics);
+    }
+
+    public static void renderText(ResponseBuffer out, String title, String text, SolveMetrics metrics) {
+        beginObject(out, title);
+        out.append(",\"text\":").appendJsonString(text);
+        endObject(out, metrics);
+    }
+
+    /**
+     * One line of a batch response: {"index", "spec", "solved", "grid", "metrics"} or {"index", "error"}.
+     */
+    public static void renderBatchItem(ResponseBuffer out, BatchSolver.Item item) {
+        out.append("{\"index\":").appendInt(item.index);
+        if (item.outcome == null) {
+            out.append(",\"error\":").appendJsonString(item.error).appendByte('}');
+            return;
+        }
+        SpecSolver.Outcome outcome = item.outcome;
+        out.append(",\"spec\":").appendJsonString(outcome.spec.toQuery());
+        out.append(",\"limitReached\":").append(outcome.limitReached ? "true" : "false");
+        writeGridFields(out, outcome.grid, outcome.spec.size());
+        endObject(out, outcome.metrics());
+    }
+
+    public static void renderBatchSummary(ResponseBuffer out, BatchSolver.Summary summary) {
+        out.append("{\"summary\":{\"puzzles\":").appendInt(summary.puzzles)
+           .append(",\"solved\":").appendInt(summary.solved)
+           .append(",\"millis\":").appendInt(summary.millis)
+           .append(",\"puzzlesPerSecond\":").append(String.format(Locale.ROOT, "%.1f", summary.puzzlesPerSecond()))
+           .append("}}");
+    }
+
+    /**
+     * One progress snapshot of a running search, with the number of attached observers.
+     */
+    public static void renderProgress(ResponseBuffer out, SearchProgress.Snapshot snapshot, int observers) {
+        out.append("{\"nodes\":").appendInt(snapshot.nodes)
+           .append(",\"nodesPerSecond\":").appendInt((long) snapshot.nodesPerSecond())
+           .append(",\"solutions\":").appendInt(snapshot.solutions)
+           .append(",\"depth\":").appendInt(snapshot.depth)
+           .append(",\"percent\":").append(String.format(Locale.ROOT, "%.4f", snapshot.percent))
+           .append(",\"millis\":").appendInt(snapshot.millis)
+           .append(",\"observers\":").appendInt(observers)
+           .appendByte('}');
+    }
+
+    /**
+     * Search-tree estimate with 95% intervals: {"title", "query", "treeNodes", "solutions", ...}.
+     */
+    public static void renderEstimate(ResponseBuffer out, String title, String query,
+                                      SearchTreeEstimator.Estimate estimate) {
+        beginObject(out, title);
+        out.append(",\"query\":").appendJsonString(query);
+        appendInterval(out, "treeNodes", estimate.treeNodes, estimate.treeStdError,
+                estimate.treeLow(), estimate.treeHigh());
+        appendInterval(out, "solutions", estimate.solutions, estimate.solutionsStdError,
+                estimate.solutionsLow(), estimate.solutionsHigh());
+        out.append(",\"probes\":").appendInt(estimate.probes)
+           .append(",\"strata\":").appendInt(estimate.strata)
+           .append(",\"stratify\":").appendInt(estimate.stratifyDepth)
+           .append(",\"millis\":").appendInt(estimate.millis)
+           .appendByte('}');
+    }
+
+    /**
+     * Index summary and solutions by rank: {"title", "query", "total", ..., "solutions": [{"k", "grid"}]}.
+     */
+    public static void renderSolutions(ResponseBuffer out, String title, SolutionIndex index, long[] ranks,
+                                       List<int[]> grids) {
+        beginObject(out, title);
+        out.append(",\"query\":").appendJsonString(index.query)
+           .append(",\"total\":").appendInt(index.total())
+           .append(",\"depth\":").appendInt(index.depth)
+           .append(",\"subtrees\":").appendInt(index.subtrees())
+           .append(",\"buildNodes\":").appendInt(index.nodes)
+           .append(",\"buildMillis\":").appendInt(index.millis);
+        appendInts(out, "fillOrder", index.space.fillOrder());
+        out.append(",\"solutions\":[");
+        for (int i = 0; i < grids.size(); i++) {
+            if (i > 0) out.appendByte(',');
+            out.append("{\"k\":").appendInt(ranks[i]);
+            appendInts(out, "grid", grids.get(i));
+            out.appendByte('}');
+        }
+        out.append("]}");
+    }
+
+    private static void appendInts(ResponseBuffer out, String name, int[] values) {
+        out.append(",\"").append(name).append("\":[");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) out.appendByte(',');
+            out.appendInt(values[i]);
+        }
+        out.appendByte(']');
+    }
+
+    private static void appendInterval(ResponseBuffer out, String name, double mean, double stdError,
+                                       double low, double high) {
+        out.append(",\"").append(name).append("\":{\"estimate\":").append(number(mean))
+           .append(",\"stdError\":").append(number(stdError))
+           .append(",\"ci95\":[").append(number(low)).appendByte(',').append(number(high))
+           .append("]}");
+    }
+
+    private static String number(double v) {
+        return String.format(Locale.ROOT, "%.6e", v);
+    }
+
+    private static void beginObject(ResponseBuffer out, String title) {
+        out.append("{\"title\":").appendJsonString(title);
+    }
+
+    private static void endObject(ResponseBuffer out, SolveMetrics metrics) {
+        if (metrics != null) {
+            out.append(",\"metrics\":{\"engine\":").appendJsonString(metrics.engine)
+               .append(",\"valueOrder\":").appendJsonString(metrics.valueOrder)
+               .append(",\"nodes\":").appendInt(metrics.nodes)
+               .append(",\"millis\":").appendInt(metrics.millis)
+               .append(",\"stored\":").append(metrics.stored ? "true" : "false")
+               .appendByte('}');
+        }
+        out.appendByte('}');
+    }
+
+    private static void writeGridFields(ResponseBuffer out, int[] grid, int size) {
+        out.append(",\"solved\":").append(grid != null ? "true" : "false");
+        if (grid == null) {
+            out.append(",\"grid\":null");
+            return;
+        }
+        out.append(",\"size\":").appendInt(size).append(",\"grid\":[");
+        for (int i = 0; i < grid.length; i++) {
+            if (i > 0) out.appendByte(',');
+            out.appendInt(grid[i]);
+        }
+        out.appendByte(']');
+    }
+}
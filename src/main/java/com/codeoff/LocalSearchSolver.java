@@ -0,0 +1,370 @@
+package com.codeoff;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Local-search engine: finds one valid grid by repairing a permutation.
+ *
+ * Starts from a random permutation of 1..N with the fixed seed in place and
+ * repeatedly swaps two free cells. The cost of a grid is its number of
+ * constraint violations:
+ *
+ *  - C1: orthogonal pairs that are consecutive
+ *  - C2: diagonal pairs that differ by 2 (5x5 puzzles)
+ *  - C3: 1 if the prime-cell sum is odd (5x5 puzzles)
+ *  - C4: |top-row median - target| (median puzzle)
+ *  - C5: pairs of rook values sharing a row or a column (6x6 puzzle)
+ *
+ * All counts are maintained incrementally, so applying or evaluating a swap
+ * only touches the two cells, their neighbours, the prime-cell sum, one or
+ * two rook rows/columns and (for C4) the fixed-size top row.
+ *
+ * Each step picks a conflicted cell, evaluates swapping it with every free
+ * cell and takes the best non-tabu move; uphill moves are accepted with a
+ * simulated-annealing probability. Long stretches without improvement
+ * trigger a restart from a fresh permutation. A zero-cost grid is checked
+ * with the backtracking solver's isValidSolution before it is returned.
+ */
+public class LocalSearchSolver {
+
+    private static final long DEFAULT_MAX_MOVES = 5_000_000L;
+    private static final int TABU_TENURE = 7;
+    private static final double START_TEMPERATURE = 2.0;
+    private static final double COOLING = 0.9995;
+    private static final double MIN_TEMPERATURE = 0.05;
+    private static final int RESTART_AFTER = 20_000;
+    // A move scans every cell, so cancellation is checked more often than per 65536 nodes
+    private static final long CANCEL_CHECK_MASK = (1L << 10) - 1;
+
+    private final PuzzleSpec spec;
+    private final BoardTopology topology;
+    private final int size;
+    private final int cellCount;
+    private final boolean useDiagonal;
+    private final boolean useParity;
+    private final boolean useMedian;
+    private final long maxMoves;
+    private final Random random;
+
+    // Current permutation
+    private final int[] grid;
+
+    // Incremental constraint state
+    private final boolean[] isPrime;
+    private final boolean[] isRook;
+    private final int[] rookRowCount;
+    private final int[] rookColCount;
+    private final int[] medianScratch;
+    private int pairViolations;   // C1 + C2
+    private int primeSum;         // C3
+    private int rookViolations;   // C5
+    private int medianPenalty;    // C4
+
+    private final long[] tabuUntil;
+    private long moves;
+    private int restarts;
+
+    public LocalSearchSolver(PuzzleSpec spec) {
+        this.spec = spec;
+        this.topology = spec.topology();
+        this.size = spec.size();
+        this.cellCount = spec.cellCount();
+        this.useDiagonal = spec.type != PuzzleSpec.Type.ROOK_6X6;
+        this.useParity = useDiagonal;
+        this.useMedian = spec.type == PuzzleSpec.Type.MEDIAN_5X5;
+        this.maxMoves = spec.nodeLimit == Long.MAX_VALUE ? DEFAULT_MAX_MOVES : spec.nodeLimit;
+        this.random = new Random(spec.seed);
+
+        this.grid = new int[cellCount];
+        this.isPrime = new boolean[cellCount];
+        if (useParity) {
+            for (int c : Solver5x5.PRIME_CELL_INDICES) isPrime[c] = true;
+        }
+        this.isRook = new boolean[cellCount + 1];
+        for (int v : spec.rookValues()) isRook[v] = true;
+        this.rookRowCount = new int[size];
+        this.rookColCount = new int[size];
+        this.medianScratch = new int[size];
+        this.tabuUntil = new long[cellCount];
+    }
+
+    public long getMoves() {
+        return moves;
+    }
+
+    public int getRestarts() {
+        return restarts;
+    }
+
+    public boolean isMoveLimitReached() {
+        return moves >= maxMoves;
+    }
+
+    /**
+     * @return a valid row-major grid, or null if none was found within the move budget
+     */
+    public int[] solve() {
+        while (moves < maxMoves) {
+            randomStart();
+            int[] result = descend();
+            if (result != null) {
+                return result;
+            }
+            restarts++;
+        }
+        return null;
+    }
+
+    // ----------------- Search -----------------
+
+    private int[] descend() {
+        double temperature = START_TEMPERATURE;
+        int cost = cost();
+        int best = cost;
+        int sinceImprovement = 0;
+
+        while (moves < maxMoves) {
+            if (cost == 0) {
+                int[] candidate = grid.clone();
+                if (isValid(candidate)) {
+                    return candidate;
+                }
+                return null; // should not happen: counts and validator disagree
+            }
+
+            int a = pickConflictedCell();
+            int bestB = -1;
+            int bestDelta = Integer.MAX_VALUE;
+            int ties = 0;
+
+            for (int b = 0; b < cellCount; b++) {
+                if (b == a || b == spec.fixedIndex) continue;
+                int delta = swap(a, b) - cost;
+                swap(a, b); // undo
+                boolean tabu = tabuUntil[b] > moves && cost + delta >= best;
+                if (tabu) continue;
+                if (delta < bestDelta) {
+                    bestDelta = delta;
+                    bestB = b;
+                    ties = 1;
+                } else if (delta == bestDelta && random.nextInt(++ties) == 0) {
+                    bestB = b;
+                }
+            }
+            moves++;
+            if ((moves & CANCEL_CHECK_MASK) == 0) {
+                SearchTelemetry.checkCancelled();
+            }
+            if (bestB < 0) continue;
+
+            if (bestDelta <= 0 || random.nextDouble() < Math.exp(-bestDelta / temperature)) {
+                cost = swap(a, bestB);
+                tabuUntil[a] = moves + TABU_TENURE;
+                tabuUntil[bestB] = moves + TABU_TENURE;
+            }
+
+            if (cost < best) {
+                best = cost;
+                sinceImprovement = 0;
+            } else if (++sinceImprovement > RESTART_AFTER) {
+                return null;
+            }
+            temperature = Math.max(MIN_TEMPERATURE, temperature * COOLING);
+        }
+        return null;
+    }
+
+    private void randomStart() {
+        int[] free = new int[cellCount - 1];
+        int n = 0;
+        for (int v = 1; v <= cellCount; v++) {
+            if (v != spec.fixedValue) free[n++] = v;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = free[i];
+            free[i] = free[j];
+            free[j] = t;
+        }
+
+        int k = 0;
+        for (int idx = 0; idx < cellCount; idx++) {
+            grid[idx] = idx == spec.fixedIndex ? spec.fixedValue : free[k++];
+        }
+        Arrays.fill(tabuUntil, 0);
+        recomputeAll();
+    }
+
+    // A cell that takes part in a violation, or any free cell if sampling finds none
+    private int pickConflictedCell() {
+        for (int attempt = 0; attempt < 2 * cellCount; attempt++) {
+            int idx = random.nextInt(cellCount);
+            if (idx == spec.fixedIndex) continue;
+            if (localPairViolations(idx) > 0) return idx;
+            if (useParity && (primeSum & 1) != 0 && isPrime[idx]) return idx;
+            if (isRook[grid[idx]] && (rookRowCount[idx / size] > 1 || rookColCount[idx % size] > 1)) return idx;
+            if (useMedian && medianPenalty > 0 && idx < size) return idx;
+        }
+        int idx;
+        do {
+            idx = random.nextInt(cellCount);
+        } while (idx == spec.fixedIndex);
+        return idx;
+    }
+
+    // ----------------- Incremental cost -----------------
+
+    /**
+     * Self-check of the incremental bookkeeping: from a random start,
+     * applies random swaps and counts those whose incrementally updated cost
+     * differs from a full recompute (0 when the counts are right).
+     */
+    int checkIncrementalCost(int swaps) {
+        randomStart();
+        int mismatches = 0;
+        for (int i = 0; i < swaps; i++) {
+            int a;
+            int b;
+            do {
+                a = random.nextInt(cellCount);
+                b = random.nextInt(cellCount);
+            } while (a == b || a == spec.fixedIndex || b == spec.fixedIndex);
+            int incremental = swap(a, b);
+            recomputeAll();
+            if (cost() != incremental) mismatches++;
+        }
+        return mismatches;
+    }
+
+    private int cost() {
+        return pairViolations + (useParity ? (primeSum & 1) : 0) + rookViolations + medianPenalty;
+    }
+
+    /**
+     * Swaps cells a and b, updates every violation count and returns the new cost.
+     * Calling it twice with the same cells restores the previous state.
+     */
+    private int swap(int a, int b) {
+        // C1/C2: remove the pairs touching a or b, swap, add them back
+        pairViolations -= touchingViolations(a, b);
+
+        int va = grid[a];
+        int vb = grid[b];
+
+        if (isRook[va]) removeRook(a);
+        if (isRook[vb]) removeRook(b);
+
+        grid[a] = vb;
+        grid[b] = va;
+
+        if (isRook[vb]) addRook(a);
+        if (isRook[va]) addRook(b);
+
+        pairViolations += touchingViolations(a, b);
+
+        // C3: only a swap across the prime/non-prime boundary changes the sum
+        if (isPrime[a] != isPrime[b]) {
+            primeSum += isPrime[a] ? vb - va : va - vb;
+        }
+
+        // C4: only swaps touching the top row move the median
+        if (useMedian && (a < size || b < size)) {
+            medianPenalty = medianPenalty();
+        }
+
+        return cost();
+    }
+
+    // Violating pairs incident to a or b, counting the a-b pair once
+    private int touchingViolations(int a, int b) {
+        int total = localPairViolations(a) + localPairViolations(b);
+        if (areNeighbors(a, b)) {
+            total -= violates(a, b) ? 1 : 0;
+        }
+        return total;
+    }
+
+    private int localPairViolations(int idx) {
+        int v = grid[idx];
+        int count = 0;
+        for (int nb : topology.orthogonalNeighbors[idx]) {
+            if (Math.abs(grid[nb] - v) == 1) count++;
+        }
+        if (useDiagonal) {
+            for (int nb : topology.diagonalNeighbors[idx]) {
+                if (Math.abs(grid[nb] - v) == 2) count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean areNeighbors(int a, int b) {
+        int dr = Math.abs(a / size - b / size);
+        int dc = Math.abs(a % size - b % size);
+        return (dr + dc == 1) || (useDiagonal && dr == 1 && dc == 1);
+    }
+
+    private boolean violates(int a, int b) {
+        int dr = Math.abs(a / size - b / size);
+        int dc = Math.abs(a % size - b % size);
+        int diff = Math.abs(grid[a] - grid[b]);
+        return dr + dc == 1 ? diff == 1 : diff == 2;
+    }
+
+    private void removeRook(int idx) {
+        rookViolations -= --rookRowCount[idx / size];
+        rookViolations -= --rookColCount[idx % size];
+    }
+
+    private void addRook(int idx) {
+        rookViolations += rookRowCount[idx / size]++;
+        rookViolations += rookColCount[idx % size]++;
+    }
+
+    private int medianPenalty() {
+        System.arraycopy(grid, 0, medianScratch, 0, size);
+        // insertion sort of the (fixed, small) top row
+        for (int i = 1; i < size; i++) {
+            int v = medianScratch[i];
+            int j = i - 1;
+            while (j >= 0 && medianScratch[j] > v) {
+                medianScratch[j + 1] = medianScratch[j];
+                j--;
+            }
+            medianScratch[j + 1] = v;
+        }
+        return Math.abs(medianScratch[size / 2] - spec.medianTarget);
+    }
+
+    private void recomputeAll() {
+        int pairs = 0;
+        for (int idx = 0; idx < cellCount; idx++) {
+            pairs += localPairViolations(idx);
+        }
+        pairViolations = pairs / 2; // every pair was counted from both ends
+
+        primeSum = 0;
+        for (int idx = 0; idx < cellCount; idx++) {
+            if (isPrime[idx]) primeSum += grid[idx];
+        }
+
+        Arrays.fill(rookRowCount, 0);
+        Arrays.fill(rookColCount, 0);
+        rookViolations = 0;
+        for (int idx = 0; idx < cellCount; idx++) {
+            if (isRook[grid[idx]]) addRook(idx);
+        }
+
+        medianPenalty = useMedian ? medianPenalty() : 0;
+    }
+
+    // Final check with the existing validators
+    private boolean isValid(int[] candidate) {
+        return switch (spec.type) {
+            case BASE_5X5 -> new Solver5x5(spec).isValidSolution(candidate);
+            case MEDIAN_5X5 -> new Solver5x5Median(spec).isValidSolution(candidate);
+            case ROOK_6X6 -> new Solver6x6(spec).isValidSolution(candidate);
+        };
+    }
+}
@@ -0,0 +1,491 @@
+package com.codeoff;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Meet-in-the-middle engine for the 6x6 rook puzzle (engine=mitm).
+ *
+ * The board is split into a top half (rows 1-3) and a bottom half (rows 4-6).
+ * Top halves that satisfy C1, the fixed seed and the rook rule internally
+ * are enumerated depth-first into a {@link HalfTable}, grouped by their
+ * value set (a 36-bit mask) and, within a value set, by their boundary row
+ * (row 3). A full grid needs a bottom half over exactly the complementary
+ * values, so for each value set (largest group first) the bottom halves over
+ * the complement are enumerated and joined against it. The bottom half
+ * fills its seam row first and keeps, cell by cell, only the top boundary
+ * rows it does not conflict with under C1; a seam prefix that joins no top
+ * half is abandoned before the rows below it are searched. The rook rule
+ * across halves is a test of the two halves' rook-column masks.
+ *
+ * A half holds 18 of the 36 values, so enumerating every half-board is out
+ * of reach; the top table is capped at mitm.maxHalves entries (default
+ * 65536) and the whole run at the spec's node limit (default 50M). Half
+ * cells are kept off-heap, one byte per cell, with primitive index arrays,
+ * so the table costs about 60 bytes per half and no object per half.
+ * Like engine=local it finds a grid but cannot prove a variant unsatisfiable.
+ */
+public class MeetInTheMiddleSolver {
+
+    private static final int SIZE = 6;
+    private static final int CELL_COUNT = SIZE * SIZE;
+    private static final int HALF_CELLS = CELL_COUNT / 2;
+    private static final long ALL_VALUES = (1L << CELL_COUNT) - 1;
+
+    private static final long DEFAULT_MAX_NODES = 50_000_000L;
+
+    // Smallest node budget for the bottom enumeration of one value set
+    private static final long MIN_SET_NODES = 1L << 16;
+    private static final int MAX_HALVES = Integer.getInteger("mitm.maxHalves", 1 << 16);
+
+    private final PuzzleSpec spec;
+    private final int fixedIndex;
+    private final int fixedValue;
+    private final boolean[] isRook;
+    private final long rookMask;
+    private final long maxNodes;
+
+    // Cells of the half being enumerated (row-major, whole board)
+    private final int[] grid = new int[CELL_COUNT];
+
+    private long nodesVisited;
+    private long phaseLimit;
+    private HalfTable top;
+    private int reservedCols; // rook columns the top half must leave free
+    private int joinSet;      // value set the bottom enumeration is joined against
+
+    // seamRows[c]: boundary-row entries of joinSet compatible with the first c seam cells
+    private final int[][] seamRows = new int[SIZE + 1][];
+    private final int[] seamCounts = new int[SIZE + 1];
+    private int setsJoined;
+    private int[] solution;
+
+    public MeetInTheMiddleSolver(PuzzleSpec spec) {
+        if (spec.type != PuzzleSpec.Type.ROOK_6X6) {
+            throw new IllegalArgumentException("engine=mitm only solves " + PuzzleSpec.Type.ROOK_6X6.id);
+        }
+        this.spec = spec;
+        this.fixedIndex = spec.fixedIndex;
+        this.fixedValue = spec.fixedValue;
+        this.isRook = new boolean[CELL_COUNT + 1];
+        long mask = 0;
+        for (int v : spec.rookValues()) {
+            isRook[v] = true;
+            mask |= bit(v);
+        }
+        this.rookMask = mask;
+        this.maxNodes = spec.nodeLimit == Long.MAX_VALUE ? DEFAULT_MAX_NODES : spec.nodeLimit;
+    }
+
+    public long getNodesVisited() {
+        return nodesVisited;
+    }
+
+    public boolean isNodeLimitReached() {
+        return nodesVisited >= maxNodes;
+    }
+
+    /** Top halves stored by the last solve. */
+    public int getTopHalves() {
+        return top == null ? 0 : top.halves;
+    }
+
+    /** Value sets whose complement was enumerated and joined by the last solve. */
+    public int getSetsJoined() {
+        return setsJoined;
+    }
+
+    /**
+     * Finds one valid grid (row-major) or returns null when the node limit
+     * or the enumerated value sets are exhausted.
+     */
+    public int[] solve() {
+        nodesVisited = 0;
+        setsJoined = 0;
+        solution = null;
+        top = new HalfTable();
+        try {
+            // Build: top halves, using at most half of the node budget
+            // A fixed rook in the bottom half keeps its column free of top rooks
+            phaseLimit = maxNodes / 2;
+            reservedCols = fixedIndex >= HALF_CELLS && isRook[fixedValue] ? 1 << (fixedIndex % SIZE) : 0;
+            enumerate(0, 0, 0L, ALL_VALUES, 0, reservedCols, true);
+
+            // Probe: bottom halves over each complement, largest value sets first
+            int[] order = top.setsBySize();
+            for (int i = 0; i < order.length && solution == null && nodesVisited < maxNodes; i++) {
+                int set = order[i];
+                long complement = ALL_VALUES & ~top.setMask[set];
+                if (Long.bitCount(complement & rookMask) > SIZE / 2) continue; // rooks cannot fit in 3 rows
+                long share = Math.max(MIN_SET_NODES, (maxNodes - nodesVisited) / (order.length - i));
+                phaseLimit = Math.min(maxNodes, nodesVisited + share);
+                setsJoined++;
+                joinSet = set;
+                seamRows[0] = top.boundaryRows(set);
+                seamCounts[0] = seamRows[0].length;
+                for (int c = 1; c <= SIZE; c++) {
+                    if (seamRows[c] == null || seamRows[c].length < seamCounts[0]) seamRows[c] = new int[seamCounts[0]];
+                }
+                enumerate(HALF_CELLS, 0, 0L, complement, 0, 0, false);
+            }
+        } finally {
+            top.release();
+        }
+        if (solution != null && !new Solver6x6(spec).isValidSolution(solution)) {
+            throw new IllegalStateException("Meet-in-the-middle join produced an invalid grid");
+        }
+        return solution;
+    }
+
+    /**
+     * Fills the half starting at cell base in row-major order with values
+     * from allowed. Returns true to stop the enumeration (table full,
+     * solution found or phase budget spent).
+     */
+    private boolean enumerate(int base, int pos, long used, long allowed, int rookRows, int rookCols,
+                              boolean building) {
+        if (++nodesVisited >= phaseLimit) {
+            return true;
+        }
+        if ((nodesVisited & SearchTelemetry.SAMPLE_MASK) == 0) {
+            SearchTelemetry.checkCancelled();
+        }
+        if (pos == HALF_CELLS) {
+            return building ? top.add(grid, used, rookCols & ~reservedCols) : join(used, rookCols);
+        }
+        // Bottom half: the seam row is filled first; go on only if it joins some top half
+        if (!building && pos == SIZE && top.match(joinSet, HalfTable.packRow(grid, base), rookCols) < 0) {
+            return false;
+        }
+        boolean seam = !building && pos < SIZE;
+
+        int idx = base + pos;
+        int row = idx / SIZE;
+        int col = idx % SIZE;
+        // The fixed value belongs to the fixed cell, whichever half holds it
+        long free = idx == fixedIndex ? bit(fixedValue) & ~used : allowed & ~used & ~bit(fixedValue);
+
+        // Values whose two consecutive neighbours are both unplaced first: left to
+        // the end they form runs that no row can separate
+        long open = allowed & ~used;
+        long crowded = free & (open >>> 1) & (open << 1);
+        for (int pass = 0; pass < 2; pass++) {
+            long values = pass == 0 ? crowded : free & ~crowded;
+            while (values != 0) {
+                int v = Long.numberOfTrailingZeros(values) + 1;
+                values &= values - 1;
+
+                // C1 against the cells already placed in this half (left and above)
+                if (col > 0 && Math.abs(grid[idx - 1] - v) == 1) continue;
+                if (pos >= SIZE && Math.abs(grid[idx - SIZE] - v) == 1) continue;
+
+                // C1 across the seam: keep the top boundary rows this value does not conflict with
+                if (seam && filterSeam(col, v) == 0) continue;
+
+                int rr = rookRows;
+                int rc = rookCols;
+                if (isRook[v]) {
+                    if ((rookRows & (1 << row)) != 0 || (rookCols & (1 << col)) != 0) continue;
+                    rr |= 1 << row;
+                    rc |= 1 << col;
+                    // Bottom half: some top half of the set must leave these rook columns free
+                    if (!building && !top.rookColumnsFree(joinSet, rc)) continue;
+                }
+
+                // Bottom half: the rook values still to place need free rows and columns
+                if (!building && !roomForRooks(base, pos, rr, rc, allowed & ~(used | bit(v)) & rookMask)) continue;
+
+                grid[idx] = v;
+                if (enumerate(base, pos + 1, used | bit(v), allowed, rr, rc, building)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Narrows seamRows[col] to the entries whose cell at col is not consecutive to v
+    private int filterSeam(int col, int v) {
+        int[] from = seamRows[col];
+        int[] to = seamRows[col + 1];
+        int n = 0;
+        for (int i = 0, count = seamCounts[col]; i < count; i++) {
+            int r = from[i];
+            if (Math.abs(top.boundaryValue(r, col) - v) != 1) to[n++] = r;
+        }
+        return seamCounts[col + 1] = n;
+    }
+
+    /**
+     * Necessary condition for placing the pending rook values in the cells
+     * after pos: enough rook-free rows, and enough rook-free columns among
+     * the cells those rows still have open.
+     */
+    private static boolean roomForRooks(int base, int pos, int rookRows, int rookCols, long pending) {
+        int needed = Long.bitCount(pending);
+        if (needed == 0) return true;
+        int next = pos + 1;
+        int row = (base + next) / SIZE;
+        int col = next % SIZE;
+        int lastRow = (base + HALF_CELLS) / SIZE - 1;
+        if (next == HALF_CELLS) return false;
+
+        int rows = 0;
+        int cols = 0;
+        if ((rookRows & (1 << row)) == 0) {
+            rows++;
+            cols |= ((1 << SIZE) - 1) & ~((1 << col) - 1); // the rest of the current row
+        }
+        for (int r = row + 1; r <= lastRow; r++) {
+            if ((rookRows & (1 << r)) == 0) {
+                rows++;
+                cols = (1 << SIZE) - 1;
+            }
+        }
+        return rows >= needed && Integer.bitCount(cols & ~rookCols) >= needed;
+    }
+
+    // A complete bottom half: look for a compatible top half over the complementary values
+    private boolean join(long used, int rookCols) {
+        long boundary = HalfTable.packRow(grid, HALF_CELLS);
+        int match = top.match(joinSet, boundary, rookCols);
+        if (match < 0) {
+            return false;
+        }
+        solution = new int[CELL_COUNT];
+        top.copyCells(match, solution);
+        System.arraycopy(grid, HALF_CELLS, solution, HALF_CELLS, HALF_CELLS);
+        return true;
+    }
+
+    private static long bit(int value) {
+        return 1L << (value - 1);
+    }
+
+    /**
+     * Top half-boards grouped by value set and boundary row.
+     *
+     * Halves: 18 cell bytes each in a direct buffer, plus their rook-column
+     * mask and a link to the next half with the same set and boundary row.
+     * Row entries: one per distinct (value set, boundary row), heading a list
+     * of halves and linked to the next row entry of the same set. Sets: one
+     * per value mask, heading a list of row entries. Sets and row entries
+     * are found through open-addressing tables of entry indexes.
+     */
+    static final class HalfTable {
+        private static final int INITIAL = 1 << 10;
+
+        private ByteBuffer cells = ByteBuffer.allocateDirect(INITIAL * HALF_CELLS);
+        private byte[] rookCols = new byte[INITIAL];
+        private int[] nextHalf = new int[INITIAL];
+        int halves;
+
+        private long[] rowSet = new long[INITIAL];
+        private long[] rowKey = new long[INITIAL];
+        private int[] rowHead = new int[INITIAL];
+        private int[] nextRow = new int[INITIAL];
+        private int rows;
+
+        long[] setMask = new long[INITIAL];
+        private int[] setHead = new int[INITIAL];
+        private int[] setHalves = new int[INITIAL];
+        private long[] setRookMasks = new long[INITIAL];  // bit m: some half has rook columns m
+        private long[] setRookFree = new long[INITIAL];   // bit x: some half has no rook in columns x
+        private int sets;
+
+        // entry index + 1 per slot, 0 = empty
+        private int[] setSlots = new int[INITIAL * 2];
+        private int[] rowSlots = new int[INITIAL * 2];
+
+        /** Stores the top half in grid[0..17]; returns true once the table is full. */
+        boolean add(int[] grid, long mask, int rookColMask) {
+            int set = findSet(mask);
+            if (set < 0) {
+                set = addSet(mask);
+            }
+            long boundary = packRow(grid, HALF_CELLS - SIZE);
+            int row = findRow(mask, boundary);
+            if (row < 0) {
+                row = addRow(set, mask, boundary);
+            }
+
+            if (halves == nextHalf.length) {
+                growHalves();
+            }
+            int h = halves++;
+            for (int i = 0; i < HALF_CELLS; i++) {
+                cells.put(h * HALF_CELLS + i, (byte) grid[i]);
+            }
+            rookCols[h] = (byte) rookColMask;
+            if ((setRookMasks[set] & (1L << rookColMask)) == 0) {
+                setRookMasks[set] |= 1L << rookColMask;
+                for (int x = 0; x < 64; x++) {
+                    if ((x & rookColMask) == 0) setRookFree[set] |= 1L << x;
+                }
+            }
+            nextHalf[h] = rowHead[row];
+            rowHead[row] = h;
+            setHalves[set]++;
+            return halves >= MAX_HALVES;
+        }
+
+        /**
+         * A half of the set whose boundary row has no C1 conflict with the
+         * bottom boundary and whose rook columns are disjoint, or -1.
+         */
+        int match(int set, long bottomBoundary, int bottomRookCols) {
+            for (int r = setHead[set]; r >= 0; r = nextRow[r]) {
+                if (!seamCompatible(rowKey[r], bottomBoundary)) continue;
+                for (int h = rowHead[r]; h >= 0; h = nextHalf[h]) {
+                    if ((rookCols[h] & bottomRookCols) == 0) return h;
+                }
+            }
+            return -1;
+        }
+
+        /** The boundary-row entries of the set. */
+        int[] boundaryRows(int set) {
+            int n = 0;
+            for (int r = setHead[set]; r >= 0; r = nextRow[r]) n++;
+            int[] entries = new int[n];
+            n = 0;
+            for (int r = setHead[set]; r >= 0; r = nextRow[r]) entries[n++] = r;
+            return entries;
+        }
+
+        /** Value of a boundary-row entry in column col. */
+        int boundaryValue(int row, int col) {
+            return (int) (rowKey[row] >>> (6 * col)) & 63;
+        }
+
+        /** Whether some half of the set has no rook in the given columns. */
+        boolean rookColumnsFree(int set, int columns) {
+            return (setRookFree[set] & (1L << columns)) != 0;
+        }
+
+        void copyCells(int half, int[] dest) {
+            for (int i = 0; i < HALF_CELLS; i++) {
+                dest[i] = cells.get(half * HALF_CELLS + i);
+            }
+        }
+
+        /** Set indexes ordered by number of halves, largest first. */
+        int[] setsBySize() {
+            long[] keyed = new long[sets];
+            for (int s = 0; s < sets; s++) {
+                keyed[s] = ((long) (Integer.MAX_VALUE - setHalves[s]) << 32) | s;
+            }
+            Arrays.sort(keyed);
+            int[] order = new int[sets];
+            for (int i = 0; i < sets; i++) order[i] = (int) keyed[i];
+            return order;
+        }
+
+        void release() {
+            cells = null; // the direct buffer is freed with its last reference
+        }
+
+        // Six values of 6 bits each, starting at cell from
+        static long packRow(int[] grid, int from) {
+            long packed = 0;
+            for (int c = 0; c < SIZE; c++) {
+                packed |= (long) grid[from + c] << (6 * c);
+            }
+            return packed;
+        }
+
+        private static boolean seamCompatible(long topRow, long bottomRow) {
+            for (int c = 0; c < SIZE; c++) {
+                int t = (int) (topRow >>> (6 * c)) & 63;
+                int b = (int) (bottomRow >>> (6 * c)) & 63;
+                if (Math.abs(t - b) == 1) return false;
+            }
+            return true;
+        }
+
+        // ----------------- Indexes -----------------
+
+        private int findSet(long mask) {
+            int m = setSlots.length - 1;
+            for (int i = hash(mask, 0) & m; setSlots[i] != 0; i = (i + 1) & m) {
+                int s = setSlots[i] - 1;
+                if (setMask[s] == mask) return s;
+            }
+            return -1;
+        }
+
+        private int addSet(long mask) {
+            if (sets == setMask.length) {
+                setMask = Arrays.copyOf(setMask, sets * 2);
+                setHead = Arrays.copyOf(setHead, sets * 2);
+                setHalves = Arrays.copyOf(setHalves, sets * 2);
+                setRookMasks = Arrays.copyOf(setRookMasks, sets * 2);
+                setRookFree = Arrays.copyOf(setRookFree, sets * 2);
+            }
+            int s = sets++;
+            setMask[s] = mask;
+            setHead[s] = -1;
+            if (sets * 2 > setSlots.length) {
+                setSlots = new int[setSlots.length * 2];
+                for (int i = 0; i < sets; i++) insert(setSlots, hash(setMask[i], 0), i);
+            } else {
+                insert(setSlots, hash(mask, 0), s);
+            }
+            return s;
+        }
+
+        private int findRow(long mask, long boundary) {
+            int m = rowSlots.length - 1;
+            for (int i = hash(mask, boundary) & m; rowSlots[i] != 0; i = (i + 1) & m) {
+                int r = rowSlots[i] - 1;
+                if (rowSet[r] == mask && rowKey[r] == boundary) return r;
+            }
+            return -1;
+        }
+
+        private int addRow(int set, long mask, long boundary) {
+            if (rows == rowKey.length) {
+                rowSet = Arrays.copyOf(rowSet, rows * 2);
+                rowKey = Arrays.copyOf(rowKey, rows * 2);
+                rowHead = Arrays.copyOf(rowHead, rows * 2);
+                nextRow = Arrays.copyOf(nextRow, rows * 2);
+            }
+            int r = rows++;
+            rowSet[r] = mask;
+            rowKey[r] = boundary;
+            rowHead[r] = -1;
+            nextRow[r] = setHead[set];
+            setHead[set] = r;
+            if (rows * 2 > rowSlots.length) {
+                rowSlots = new int[rowSlots.length * 2];
+                for (int i = 0; i < rows; i++) insert(rowSlots, hash(rowSet[i], rowKey[i]), i);
+            } else {
+                insert(rowSlots, hash(mask, boundary), r);
+            }
+            return r;
+        }
+
+        private void growHalves() {
+            int capacity = nextHalf.length * 2;
+            ByteBuffer grown = ByteBuffer.allocateDirect(capacity * HALF_CELLS);
+            grown.put(cells.duplicate().clear());
+            cells = grown;
+            rookCols = Arrays.copyOf(rookCols, capacity);
+            nextHalf = Arrays.copyOf(nextHalf, capacity);
+        }
+
+        private static void insert(int[] slots, int hash, int entry) {
+            int m = slots.length - 1;
+            int i = hash & m;
+            while (slots[i] != 0) i = (i + 1) & m;
+            slots[i] = entry + 1;
+        }
+
+        private static int hash(long a, long b) {
+            long h = a * 0x9E3779B97F4A7C15L + b;
+            h ^= h >>> 33;
+            h *= 0xC2B2AE3D27D4EB4FL;
+            return (int) (h ^ (h >>> 29));
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.codeoff;
+
+import java.util.Arrays;
+
+/**
+ * Parameters of one puzzle variant plus the search options used to solve it.
+ *
+ * The defaults reproduce the original fixed puzzles:
+ *   solve5x5    (3,3) = 13, C1 + C2 + C3
+ *   solveMedian (3,3) = 13, C1 + C2 + C3, top-row median 14
+ *   solve6x6    (1,1) = 1,  C1 + rook set {1, 12, 24, 36}
+ *
+ * Specs are written and parsed in query-string form, e.g.
+ *   puzzle=solveMedian&fixedRow=3&fixedCol=3&fixedValue=13&median=14&order=extremes
+ * with 1-based rows and columns as in the problem statements; engine selects
+ * the search engine (backtrack by default; local; mitm on 6x6). Unknown keys and out-of-range
+ * values are rejected with IllegalArgumentException.
+ */
+public final class PuzzleSpec {
+
+    public enum Type {
+        BASE_5X5("solve5x5", 5),
+        MEDIAN_5X5("solveMedian", 5),
+        ROOK_6X6("solve6x6", 6);
+
+        public final String id;
+        public final int size;
+
+        Type(String id, int size) {
+            this.id = id;
+            this.size = size;
+        }
+
+        public static Type fromId(String id) {
+            for (Type t : values()) {
+                if (t.id.equals(id)) return t;
+            }
+            throw new IllegalArgumentException("Unknown puzzle: " + id);
+        }
+    }
+
+    public enum Engine {
+        /** Complete depth-first search (the Solver* classes). */
+        BACKTRACK("backtrack"),
+        /** Min-conflicts / annealing repair of a permutation ({@link LocalSearchSolver}). */
+        LOCAL("local"),
+        /** Join of enumerated top and bottom half-boards, 6x6 only ({@link MeetInTheMiddleSolver}). */
+        MITM("mitm");
+
+        public final String id;
+
+        Engine(String id) {
+            this.id = id;
+        }
+
+        public static Engine fromId(String id) {
+            for (Engine e : values()) {
+                if (e.id.equals(id)) return e;
+            }
+            throw new IllegalArgumentException("Unknown engine: " + id);
+        }
+    }
+
+    public final Type type;
+
+    // Fixed seed cell (0-based index) and its value
+    public final int fixedIndex;
+    public final int fixedValue;
+
+    // MEDIAN_5X5: required median of the top row
+    public final int medianTarget;
+
+    // ROOK_6X6: values that must occupy distinct rows and columns
+    private final int[] rookValues;
+
+    // Search options; nodeLimit caps moves for the local engine
+    public final Engine engine;
+    public final ValueOrder valueOrder;
+    public final long seed;
+    public final long nodeLimit;
+
+    private PuzzleSpec(Type type, int fixedIndex, int fixedValue, int medianTarget, int[] rookValues,
+                       Engine engine, ValueOrder valueOrder, long seed, long nodeLimit) {
+        this.type = type;
+        this.fixedIndex = fixedIndex;
+        this.fixedValue = fixedValue;
+        this.medianTarget = medianTarget;
+        this.rookValues = rookValues;
+        this.engine = engine;
+        this.valueOrder = valueOrder;
+        this.seed = seed;
+        this.nodeLimit = nodeLimit;
+        validate();
+    }
+
+    /** The original puzzle of the given type, ascending value order, no node limit. */
+    public static PuzzleSpec defaults(Type type) {
+        return switch (type) {
+            case BASE_5X5 -> new PuzzleSpec(type, 12, 13, 0, new int[0], Engine.BACKTRACK,
+                    ValueOrder.ASCENDING, 0L, Long.MAX_VALUE);
+            case MEDIAN_5X5 -> new PuzzleSpec(type, 12, 13, 14, new int[0], Engine.BACKTRACK,
+                    ValueOrder.ASCENDING, 0L, Long.MAX_VALUE);
+            case ROOK_6X6 -> new PuzzleSpec(type, 0, 1, 0, new int[]{1, 12, 24, 36}, Engine.BACKTRACK,
+                    ValueOrder.ASCENDING, 0L, Long.MAX_VALUE);
+        };
+    }
+
+    /** Parses a spec line; the puzzle key is required. */
+    public static PuzzleSpec parse(String query) {
+        String puzzle = ResponseFormat.queryParam(query, "puzzle");
+        if (puzzle == null) {
+            throw new IllegalArgumentException("Missing puzzle in spec: " + query);
+        }
+        return fromQuery(Type.fromId(puzzle), query);
+    }
+
+    /** Applies query parameters on top of the defaults for the given type. */
+    public static PuzzleSpec fromQuery(Type type, String query) {
+        PuzzleSpec d = defaults(type);
+        int size = type.size;
+        int fixedRow = d.fixedIndex / size + 1;
+        int fixedCol = d.fixedIndex % size + 1;
+        int fixedValue = d.fixedValue;
+        int median = d.medianTarget;
+        int[] rooks = d.rookValues;
+        Engine engine = d.engine;
+        ValueOrder order = d.valueOrder;
+        long seed = d.seed;
+        long nodeLimit = d.nodeLimit;
+
+        if (query != null && !query.isEmpty()) {
+            for (String pair : query.split("&")) {
+                if (pair.isEmpty()) continue;
+                int eq = pair.indexOf('=');
+                String key = eq < 0 ? pair : pair.substring(0, eq);
+                String value = ResponseFormat.queryParam(pair, key);
+                switch (key) {
+                    case "puzzle", "format" -> { }
+                    case "fixedRow" -> fixedRow = Integer.parseInt(value);
+                    case "fixedCol" -> fixedCol = Integer.parseInt(value);
+                    case "fixedValue" -> fixedValue = Integer.parseInt(value);
+                    case "median" -> median = Integer.parseInt(value);
+                    case "rooks" -> rooks = parseInts(value);
+                    case "engine" -> engine = Engine.fromId(value);
+                    case "order" -> order = ValueOrder.fromId(value);
+                    case "seed" -> seed = Long.parseLong(value);
+                    case "nodeLimit" -> nodeLimit = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("Unknown spec key: " + key);
+                }
+            }
+        }
+
+        if (fixedRow < 1 || fixedRow > size || fixedCol < 1 || fixedCol > size) {
+            throw new IllegalArgumentException("Fixed cell (" + fixedRow + "," + fixedCol + ") is off the board");
+        }
+        int fixedIndex = (fixedRow - 1) * size + (fixedCol - 1);
+        return new PuzzleSpec(type, fixedIndex, fixedValue, median, rooks, engine, order, seed, nodeLimit);
+    }
+
+    public int size() {
+        return type.size;
+    }
+
+    public int cellCount() {
+        return type.size * type.size;
+    }
+
+    public int[] rookValues() {
+        return rookValues.clone();
+    }
+
+    public boolean isRookValue(int v) {
+        for (int rv : rookValues) {
+            if (rv == v) return true;
+        }
+        return false;
+    }
+
+    /** Shared topology for this spec: anchored at the fixed cell, diagonals for the 5x5 puzzles. */
+    public BoardTopology topology() {
+        return BoardTopology.of(type.size, type != Type.ROOK_6X6, fixedIndex);
+    }
+
+    public PuzzleSpec withSearch(ValueOrder valueOrder, long seed, long nodeLimit) {
+        return new PuzzleSpec(type, fixedIndex, fixedValue, medianTarget, rookValues,
+                engine, valueOrder, seed, nodeLimit);
+    }
+
+    public PuzzleSpec withEngine(Engine engine) {
+        return new PuzzleSpec(type, fixedIndex, fixedValue, medianTarget, rookValues,
+                engine, valueOrder, seed, nodeLimit);
+    }
+
+    /**
+     * Canonical query-string form: every parameter, in a fixed order, so
+     * equal specs have equal strings.
+     */
+    public String toQuery() {
+        int size = type.size;
+        StringBuilder sb = new StringBuilder();
+        sb.append("puzzle=").append(type.id)
+          .append("&fixedRow=").append(fixedIndex / size + 1)
+          .append("&fixedCol=").append(fixedIndex % size + 1)
+          .append("&fixedValue=").append(fixedValue);
+        if (type == Type.MEDIAN_5X5) {
+            sb.append("&median=").append(medianTarget);
+        }
+        if (type == Type.ROOK_6X6) {
+            sb.append("&rooks=");
+            for (int i = 0; i < rookValues.length; i++) {
+                if (i > 0) sb.append("%2C");
+                sb.append(rookValues[i]);
+            }
+        }
+        if (engine != Engine.BACKTRACK) {
+            sb.append("&engine=").append(engine.id);
+        }
+        sb.append("&order=").append(valueOrder.id)
+          .append("&seed=").append(seed);
+        if (nodeLimit != Long.MAX_VALUE) {
+            sb.append("&nodeLimit=").append(nodeLimit);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toQuery();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof PuzzleSpec other && toQuery().equals(other.toQuery());
+    }
+
+    @Override
+    public int hashCode() {
+        return toQuery().hashCode();
+    }
+
+    // ----------------- Helpers -----------------
+
+    private void validate() {
+        int maxValue = cellCount();
+        if (fixedValue < 1 || fixedValue > maxValue) {
+            throw new IllegalArgumentException("Fixed value out of range 1.." + maxValue + ": " + fixedValue);
+        }
+        if (type == Type.MEDIAN_5X5 && (medianTarget < 1 || medianTarget > maxValue)) {
+            throw new IllegalArgumentException("Median target out of range 1.." + maxValue + ": " + medianTarget);
+        }
+        if (rookValues.length > type.size) {
+            throw new IllegalArgumentException("At most " + type.size + " rook values fit on the board");
+        }
+        boolean[] seen = new boolean[maxValue + 1];
+        for (int v : rookValues) {
+            if (v < 1 || v > maxValue || seen[v]) {
+                throw new IllegalArgumentException("Rook values must be distinct and in 1.." + maxValue);
+            }
+            seen[v] = true;
+        }
+        if (nodeLimit <= 0) {
+            throw new IllegalArgumentException("nodeLimit must be positive");
+        }
+        if (engine == Engine.MITM && type != Type.ROOK_6X6) {
+            throw new IllegalArgumentException("engine=mitm only solves " + Type.ROOK_6X6.id);
+        }
+    }
+
+    private static int[] parseInts(String csv) {
+        if (csv == null || csv.isEmpty()) return new int[0];
+        return Arrays.stream(csv.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+}
@@ -0,0 +1,223 @@
+package com.codeoff;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reusable, growable byte buffer that renderers write responses into.
+ *
+ * One instance is kept per handler thread and reset for every request, so
+ * rendering a page does not allocate intermediate Strings or re-encode the
+ * finished page to UTF-8. Grid cells are written from a table of
+ * preformatted "%3d " tokens instead of calling String.format per cell.
+ */
+public final class ResponseBuffer {
+
+    private static final int INITIAL_CAPACITY = 8192;
+    // Larger buffers are dropped after they are written, so one big
+    // response does not stay pinned to a pool thread
+    private static final int MAX_RETAINED = 64 * 1024;
+
+    private static final ThreadLocal<ResponseBuffer> LOCAL =
+            ThreadLocal.withInitial(() -> new ResponseBuffer(INITIAL_CAPACITY));
+
+    // Preformatted "%3d " tokens for cell values 0..999
+    private static final int MAX_TOKEN_VALUE = 999;
+    private static final byte[][] CELL_TOKENS = buildCellTokens();
+
+    private byte[] buf;
+    private int len;
+
+    public ResponseBuffer(int initialCapacity) {
+        this.buf = new byte[Math.max(16, initialCapacity)];
+    }
+
+    /**
+     * Returns this thread's buffer, emptied and ready for a new response.
+     */
+    public static ResponseBuffer acquire() {
+        ResponseBuffer b = LOCAL.get();
+        b.reset();
+        return b;
+    }
+
+    public ResponseBuffer reset() {
+        len = 0;
+        return this;
+    }
+
+    public int length() {
+        return len;
+    }
+
+    public byte[] array() {
+        return buf;
+    }
+
+    // ----------------- Writers -----------------
+
+    public ResponseBuffer append(byte[] bytes) {
+        return append(bytes, 0, bytes.length);
+    }
+
+    public ResponseBuffer append(byte[] bytes, int off, int count) {
+        ensure(count);
+        System.arraycopy(bytes, off, buf, len, count);
+        len += count;
+        return this;
+    }
+
+    public ResponseBuffer appendByte(int b) {
+        ensure(1);
+        buf[len++] = (byte) b;
+        return this;
+    }
+
+    /**
+     * Appends a string encoded as UTF-8 without allocating a byte[] copy.
+     */
+    public ResponseBuffer append(CharSequence s) {
+        int n = s.length();
+        ensure(n);
+        for (int i = 0; i < n; i++) {
+            char ch = s.charAt(i);
+            if (ch < 0x80) {
+                ensure(1);
+                buf[len++] = (byte) ch;
+            } else if (ch < 0x800) {
+                ensure(2);
+                buf[len++] = (byte) (0xC0 | (ch >> 6));
+                buf[len++] = (byte) (0x80 | (ch & 0x3F));
+            } else if (Character.isHighSurrogate(ch) && i + 1 < n
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(ch, s.charAt(++i));
+                ensure(4);
+                buf[len++] = (byte) (0xF0 | (cp >> 18));
+                buf[len++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[len++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[len++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(ch)) {
+                ensure(1);
+                buf[len++] = (byte) '?';
+            } else {
+                ensure(3);
+                buf[len++] = (byte) (0xE0 | (ch >> 12));
+                buf[len++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+                buf[len++] = (byte) (0x80 | (ch & 0x3F));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Appends a decimal integer without going through Long.toString.
+     */
+    public ResponseBuffer appendInt(long v) {
+        if (v == Long.MIN_VALUE) {
+            return append(Long.toString(v));
+        }
+        if (v < 0) {
+            appendByte('-');
+            v = -v;
+        }
+        int digits = 1;
+        for (long t = v; t >= 10; t /= 10) digits++;
+        ensure(digits);
+        int end = len + digits;
+        for (int p = end - 1; p >= len; p--) {
+            buf[p] = (byte) ('0' + (v % 10));
+            v /= 10;
+        }
+        len = end;
+        return this;
+    }
+
+    /**
+     * Appends a grid cell formatted like String.format("%3d ", v).
+     */
+    public ResponseBuffer appendCell(int v) {
+        if (v >= 0 && v <= MAX_TOKEN_VALUE) {
+            byte[] token = CELL_TOKENS[v];
+            ensure(4);
+            buf[len] = token[0];
+            buf[len + 1] = token[1];
+            buf[len + 2] = token[2];
+            buf[len + 3] = token[3];
+            len += 4;
+            return this;
+        }
+        return appendInt(v).appendByte(' ');
+    }
+
+    /**
+     * Appends a string as a JSON string literal, including the quotes.
+     */
+    public ResponseBuffer appendJsonString(CharSequence s) {
+        appendByte('"');
+        int start = 0;
+        int n = s.length();
+        for (int i = 0; i < n; i++) {
+            char ch = s.charAt(i);
+            if (ch >= 0x20 && ch != '"' && ch != '\\') continue;
+
+            append(s.subSequence(start, i));
+            switch (ch) {
+                case '"' -> append("\\\"");
+                case '\\' -> append("\\\\");
+                case '\n' -> append("\\n");
+                case '\r' -> append("\\r");
+                case '\t' -> append("\\t");
+                default -> {
+                    append("\\u00");
+                    appendByte(HEX[ch >> 4]);
+                    appendByte(HEX[ch & 0xF]);
+                }
+            }
+            start = i + 1;
+        }
+        append(s.subSequence(start, n));
+        return appendByte('"');
+    }
+
+    // ----------------- Output -----------------
+
+    /**
+     * Writes the contents and empties the buffer, shrinking it back to its
+     * initial size if it grew past {@link #MAX_RETAINED}.
+     */
+    public void writeTo(OutputStream os) throws IOException {
+        try {
+            os.write(buf, 0, len);
+        } finally {
+            len = 0;
+            if (buf.length > MAX_RETAINED) {
+                buf = new byte[INITIAL_CAPACITY];
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(buf, 0, len, StandardCharsets.UTF_8);
+    }
+
+    // ----------------- Helpers -----------------
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private void ensure(int extra) {
+        if (len + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+        }
+    }
+
+    private static byte[][] buildCellTokens() {
+        byte[][] tokens = new byte[MAX_TOKEN_VALUE + 1][];
+        for (int v = 0; v <= MAX_TOKEN_VALUE; v++) {
+            tokens[v] = String.format("%3d ", v).getBytes(StandardCharsets.US_ASCII);
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,59 @@
+package com.codeoff;
+
+import com.sun.net.httpserver.HttpExchange;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Response representations supported by the web API.
+ *
+ * The format is chosen from an explicit "format" query parameter
+ * (html, json, binary) and otherwise from the Accept header.
+ */
+public enum ResponseFormat {
+
+    HTML("text/html; charset=utf-8"),
+    JSON("application/json; charset=utf-8"),
+    BINARY(GridCodec.CONTENT_TYPE),
+    TEXT("text/plain; charset=utf-8");
+
+    public final String contentType;
+
+    ResponseFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public static ResponseFormat negotiate(HttpExchange ex) {
+        String query = ex.getRequestURI().getRawQuery();
+        String requested = queryParam(query, "format");
+        if (requested != null) {
+            switch (requested) {
+                case "json": return JSON;
+                case "binary": return BINARY;
+                case "text": return TEXT;
+                case "html": return HTML;
+                default: break;
+            }
+        }
+
+        String accept = ex.getRequestHeaders().getFirst("Accept");
+        if (accept == null) return HTML;
+        if (accept.contains("text/html")) return HTML;
+        if (accept.contains("application/json")) return JSON;
+        if (accept.contains(GridCodec.CONTENT_TYPE) || accept.contains("application/octet-stream")) return BINARY;
+        if (accept.contains("text/plain")) return TEXT;
+        return HTML;
+    }
+
+    static String queryParam(String query, String name) {
+        if (query == null) return null;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            if (key.equals(name)) {
+                return eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,10 @@
+package com.codeoff;
+
+/**
+ * A solved grid and its bottom-right value, as returned by the solvers.
+ */
+class Result {
+    public final int[] grid;
+    public final int bottomRight;
+    public Result(int[] g, int br) { this.grid=g; this.bottomRight=br; }
+}
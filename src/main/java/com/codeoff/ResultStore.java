@@ -0,0 +1,418 @@
+package com.codeoff;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent memo of solve outcomes and C1 counts, keyed by the canonical
+ * query string of the run (PuzzleSpec.toQuery, SolverC1Counter.toQuery).
+ * Every parameter that affects the result, including value order, seed and
+ * node limit, is part of the key; solver runs are deterministic for a given
+ * key, so a stored result is exactly what a new run would produce.
+ *
+ * Results are appended to a single log file (results.log in the store
+ * directory). At startup the log is scanned once to rebuild the in-memory
+ * index (key -> file offset); a torn or corrupt tail left by a crash is
+ * truncated. Lookups read the record back with a positional read.
+ *
+ * File layout (big-endian):
+ *   magic 'C','R','S', version 1
+ *   records, each:
+ *     int      length of the rest of the record
+ *     byte[32] key: SHA-256 of the canonical query
+ *     byte     kind: 1 = solution, 2 = count
+ *     payload  query (modified UTF-8), nodes, millis, limitReached, storedAt (epoch ms), then
+ *                solution: cell count (0 if unsolved) and one byte per cell
+ *                count:    solutions (two's-complement bytes, int length first) and summary text
+ *     int      CRC32 of key, kind and payload
+ *
+ * Only runs that took at least minMillis are stored, so cheap solves do not
+ * fill the log. Configuration (system properties):
+ *   store.dir        directory of the log (default data; empty disables the store)
+ *   store.minMillis  shortest run worth storing (default 50)
+ */
+public final class ResultStore implements AutoCloseable {
+
+    private static final byte[] MAGIC = {'C', 'R', 'S', 1};
+    private static final int KEY_BYTES = 32;
+    private static final byte KIND_SOLUTION = 1;
+    private static final byte KIND_COUNT = 2;
+
+    /**
+     * A stored C1 count.
+     */
+    public static final class Count {
+        public final String query;
+        public final BigInteger solutions;
+        public final long nodes;
+        public final long millis;
+        public final boolean limitReached;
+        public final String summary;
+        public final boolean stored;
+
+        Count(String query, BigInteger solutions, long nodes, long millis, boolean limitReached,
+              String summary, boolean stored) {
+            this.query = query;
+            this.solutions = solutions;
+            this.nodes = nodes;
+            this.millis = millis;
+            this.limitReached = limitReached;
+            this.summary = summary;
+            this.stored = stored;
+        }
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long minMillis;
+    private final ConcurrentHashMap<String, Long> index = new ConcurrentHashMap<>();
+
+    private ResultStore(Path file, FileChannel channel, long minMillis) {
+        this.file = file;
+        this.channel = channel;
+        this.minMillis = minMillis;
+    }
+
+    /**
+     * Opens (or creates) the store in dir and rebuilds its index.
+     */
+    public static ResultStore open(Path dir, long minMillis) throws IOException {
+        Files.createDirectories(dir);
+        Path file = dir.resolve("results.log");
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ResultStore store = new ResultStore(file, channel, minMillis);
+        try {
+            store.load();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return store;
+    }
+
+    /**
+     * The store configured by store.dir / store.minMillis, or null if disabled.
+     */
+    public static ResultStore fromSystemProperties() throws IOException {
+        String dir = System.getProperty("store.dir", "data");
+        if (dir.isEmpty()) {
+            return null;
+        }
+        return open(Path.of(dir), Long.getLong("store.minMillis", 50L));
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    // ----------------- Solutions -----------------
+
+    /**
+     * Returns the stored outcome for the spec, or solves it and stores the result.
+     */
+    public SpecSolver.Outcome solve(PuzzleSpec spec) {
+        return solve(spec, null);
+    }
+
+    /** As {@link #solve(PuzzleSpec)}, publishing the progress of a fresh solve. */
+    public SpecSolver.Outcome solve(PuzzleSpec spec, SearchProgress progress) {
+        SpecSolver.Outcome stored = findSolution(spec);
+        if (stored != null) {
+            return stored;
+        }
+        SpecSolver.Outcome outcome = SpecSolver.solve(spec, progress);
+        if (outcome.millis >= minMillis) {
+            putSolution(outcome);
+        }
+        return outcome;
+    }
+
+    /**
+     * Solves runSpec, the spec under a lower node cap (e.g. from admission
+     * control), and stores the outcome under spec if the run finished within
+     * the cap (or the cap is spec's own limit): solver runs are
+     * deterministic, so that is exactly the outcome of spec. Runs cut short
+     * by a lower cap are returned but not stored.
+     */
+    public SpecSolver.Outcome solveCapped(PuzzleSpec spec, PuzzleSpec runSpec, SearchProgress progress) {
+        SpecSolver.Outcome outcome = SpecSolver.solve(runSpec, progress);
+        if (outcome.limitReached && runSpec.nodeLimit < spec.nodeLimit) {
+            return outcome;
+        }
+        outcome = new SpecSolver.Outcome(spec, outcome.grid, outcome.nodes, outcome.limitReached, outcome.millis);
+        if (outcome.millis >= minMillis) {
+            putSolution(outcome);
+        }
+        return outcome;
+    }
+
+    public SpecSolver.Outcome findSolution(PuzzleSpec spec) {
+        String query = spec.toQuery();
+        try (DataInputStream in = read(query, KIND_SOLUTION)) {
+            if (in == null) return null;
+            long nodes = in.readLong();
+            long millis = in.readLong();
+            boolean limitReached = in.readBoolean();
+            in.readLong(); // storedAt
+            int cells = in.readUnsignedByte();
+            int[] grid = null;
+            if (cells > 0) {
+                grid = new int[cells];
+                for (int i = 0; i < cells; i++) grid[i] = in.readUnsignedByte();
+            }
+            return new SpecSolver.Outcome(spec, grid, nodes, limitReached, millis, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void putSolution(SpecSolver.Outcome outcome) {
+        String query = outcome.spec.toQuery();
+        append(query, KIND_SOLUTION, out -> {
+            writeCommon(out, query, outcome.nodes, outcome.millis, outcome.limitReached);
+            int[] grid = outcome.grid;
+            out.writeByte(grid == null ? 0 : grid.length);
+            if (grid != null) {
+                for (int v : grid) out.writeByte(v);
+            }
+        });
+    }
+
+    // ----------------- Counts -----------------
+
+    /**
+     * Returns the stored count for the counter's parameters, or runs it and stores the result.
+     */
+    public Count count(SolverC1Counter counter) {
+        String query = counter.toQuery();
+        Count stored = findCount(query);
+        if (stored != null) {
+            return stored;
+        }
+        Count count = run(counter);
+        if (count.millis >= minMillis) {
+            putCount(count);
+        }
+        return count;
+    }
+
+    /**
+     * Runs the counter, which has the parameters of query under a node cap
+     * no higher than query's, and stores the count under query if it
+     * finished within the cap (see {@link #solveCapped}).
+     */
+    public Count countCapped(String query, SolverC1Counter counter) {
+        Count count = run(counter);
+        if (count.limitReached && !count.query.equals(query)) {
+            return count;
+        }
+        count = new Count(query, count.solutions, count.nodes, count.millis, count.limitReached,
+                count.summary, false);
+        if (count.millis >= minMillis) {
+            putCount(count);
+        }
+        return count;
+    }
+
+    /** Runs the counter without consulting a store. */
+    public static Count run(SolverC1Counter counter) {
+        long start = System.nanoTime();
+        String summary = counter.countSummary();
+        long millis = (System.nanoTime() - start) / 1_000_000L;
+        return new Count(counter.toQuery(), counter.getSolutions(), counter.getNodesVisited(), millis,
+                counter.isNodeLimitReached(), summary, false);
+    }
+
+    public Count findCount(String query) {
+        try (DataInputStream in = read(query, KIND_COUNT)) {
+            if (in == null) return null;
+            long nodes = in.readLong();
+            long millis = in.readLong();
+            boolean limitReached = in.readBoolean();
+            in.readLong(); // storedAt
+            byte[] solutions = new byte[in.readInt()];
+            in.readFully(solutions);
+            String summary = in.readUTF();
+            return new Count(query, new BigInteger(solutions), nodes, millis, limitReached, summary, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void putCount(Count count) {
+        append(count.query, KIND_COUNT, out -> {
+            writeCommon(out, count.query, count.nodes, count.millis, count.limitReached);
+            byte[] solutions = count.solutions.toByteArray();
+            out.writeInt(solutions.length);
+            out.write(solutions);
+            out.writeUTF(count.summary);
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // ----------------- Log -----------------
+
+    private interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static void writeCommon(DataOutputStream out, String query, long nodes, long millis,
+                                    boolean limitReached) throws IOException {
+        out.writeUTF(query);
+        out.writeLong(nodes);
+        out.writeLong(millis);
+        out.writeBoolean(limitReached);
+        out.writeLong(System.currentTimeMillis());
+    }
+
+    private synchronized void append(String query, byte kind, PayloadWriter payload) {
+        String key = indexKey(query, kind);
+        if (index.containsKey(key)) {
+            return; // an identical run finished first
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0); // length, patched below
+            out.write(sha256(query));
+            out.writeByte(kind);
+            payload.write(out);
+            CRC32 crc = new CRC32();
+            byte[] record = bytes.toByteArray();
+            crc.update(record, 4, record.length - 4);
+            out.writeInt((int) crc.getValue());
+
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            buffer.putInt(0, buffer.capacity() - 4);
+            long offset = channel.size();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+            channel.force(false);
+            index.put(key, offset);
+        } catch (IOException e) {
+            System.out.println("Result store: cannot append " + query + ": " + e);
+        }
+    }
+
+    // Positions a stream after the query of the record for (query, kind), or returns null
+    private DataInputStream read(String query, byte kind) throws IOException {
+        Long offset = index.get(indexKey(query, kind));
+        if (offset == null) {
+            return null;
+        }
+        ByteBuffer length = ByteBuffer.allocate(4);
+        readFully(length, offset);
+        ByteBuffer record = ByteBuffer.allocate(length.getInt(0));
+        readFully(record, offset + 4);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record.array()));
+        in.skipBytes(KEY_BYTES + 1);
+        if (!in.readUTF().equals(query)) {
+            return null; // SHA-256 collision; treat as a miss
+        }
+        return in;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Result store truncated at " + position);
+            }
+        }
+    }
+
+    // Scans the log, rebuilding the index; truncates after the last intact record
+    private void load() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            channel.write(ByteBuffer.wrap(MAGIC), 0);
+            return;
+        }
+
+        long start = System.nanoTime();
+        long good;
+        InputStream raw = Channels.newInputStream(channel.position(0));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(raw, 1 << 16));
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException(file + " is not a result store");
+        }
+        good = MAGIC.length;
+
+        CRC32 crc = new CRC32();
+        while (good < size) {
+            int length;
+            byte[] record;
+            try {
+                length = in.readInt();
+                if (length < KEY_BYTES + 1 + 4 || length > size - good - 4) break;
+                record = new byte[length];
+                in.readFully(record);
+            } catch (EOFException e) {
+                break;
+            }
+            crc.reset();
+            crc.update(record, 0, length - 4);
+            if ((int) crc.getValue() != ByteBuffer.wrap(record, length - 4, 4).getInt()) break;
+
+            byte kind = record[KEY_BYTES];
+            index.put(indexKey(Arrays.copyOf(record, KEY_BYTES), kind), good);
+            good += 4 + length;
+        }
+
+        if (good < size) {
+            System.out.println("Result store: discarding " + (size - good) + " bytes of incomplete records in " + file);
+            channel.truncate(good);
+        }
+        System.out.println("Result store: " + index.size() + " results indexed from " + file + " in "
+                + (System.nanoTime() - start) / 1_000_000L + " ms");
+    }
+
+    private static String indexKey(String query, byte kind) {
+        return indexKey(sha256(query), kind);
+    }
+
+    private static String indexKey(byte[] key, byte kind) {
+        return kind + ":" + HexFormat.of().formatHex(key);
+    }
+
+    static byte[] sha256(String query) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(query.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.codeoff;
+
+/**
+ * Plain-Java {@link BatchValidator}: checks the grids of a block one at a time.
+ */
+final class ScalarBatchValidator extends BatchValidator {
+
+    ScalarBatchValidator(PuzzleSpec spec) {
+        super(spec);
+    }
+
+    @Override
+    public String implementation() {
+        return "scalar";
+    }
+
+    @Override
+    public void validate(GridBlock block, boolean[] valid) {
+        requireShape(block, valid);
+        int[][] cells = block.cells;
+        int n = block.count();
+        for (int g = 0; g < n; g++) {
+            valid[g] = checkGrid(cells, g);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.codeoff;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for a deep backtrack: the search exhausted the subtree under a
+ * value at one of the first few levels and moved on (a restart of
+ * everything below). Throttled; suppressed occurrences are counted.
+ */
+@Name("com.codeoff.SearchBacktrack")
+@Label("Search Backtrack")
+@Category({"Codeoff", "Solver"})
+@Description("Subtree below a shallow assignment exhausted")
+@StackTrace(false)
+public class SearchBacktrackEvent extends Event {
+
+    @Label("Puzzle")
+    String puzzle;
+
+    @Label("Depth")
+    @Description("Fill-order position whose value was abandoned")
+    int depth;
+
+    @Label("Value")
+    int value;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Suppressed")
+    @Description("Backtracks at this depth or shallower not reported since the previous event")
+    long suppressed;
+}
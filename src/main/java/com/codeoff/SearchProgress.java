@@ -0,0 +1,63 @@
+package com.codeoff;
+
+/**
+ * Progress of one running search, readable from any thread without locks.
+ *
+ * The search thread is the only writer: every SearchTelemetry sample
+ * (each 65536 nodes) publishes an immutable {@link Snapshot} through a
+ * volatile reference, and observers read the latest one. Percent complete
+ * is the share of the first few fill levels' candidate lists that lies
+ * before the current path (the fraction of prefix space already explored).
+ */
+public final class SearchProgress {
+
+    /**
+     * One published state of the search.
+     */
+    public static final class Snapshot {
+        public final long nodes;
+        public final long solutions;
+        public final int depth;
+        public final double percent;
+        public final long millis;
+
+        Snapshot(long nodes, long solutions, int depth, double percent, long millis) {
+            this.nodes = nodes;
+            this.solutions = solutions;
+            this.depth = depth;
+            this.percent = percent;
+            this.millis = millis;
+        }
+
+        public double nodesPerSecond() {
+            return millis == 0 ? 0 : nodes * 1000.0 / millis;
+        }
+    }
+
+    private volatile long startNanos = System.nanoTime();
+    private volatile Snapshot latest = new Snapshot(0, 0, 0, 0, 0);
+
+    public Snapshot snapshot() {
+        return latest;
+    }
+
+    // The search thread has started (time spent queued is not reported)
+    void started() {
+        startNanos = System.nanoTime();
+        latest = new Snapshot(0, 0, 0, 0, 0);
+    }
+
+    void publish(long nodes, long solutions, int depth, double fraction) {
+        latest = new Snapshot(nodes, solutions, depth, fraction * 100.0, elapsedMillis());
+    }
+
+    // Final counts; a search that ran its tree to the end has covered 100%
+    void finish(long nodes, long solutions, boolean exhausted) {
+        Snapshot last = latest;
+        latest = new Snapshot(nodes, solutions, last.depth, exhausted ? 100.0 : last.percent, elapsedMillis());
+    }
+
+    private long elapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000L;
+    }
+}
@@ -0,0 +1,37 @@
+package com.codeoff;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Periodic JFR sample of a running search.
+ */
+@Name("com.codeoff.SearchProgress")
+@Label("Search Progress")
+@Category({"Codeoff", "Solver"})
+@Description("Periodic sample of search depth and throughput")
+@StackTrace(false)
+public class SearchProgressEvent extends Event {
+
+    @Label("Puzzle")
+    String puzzle;
+
+    @Label("Depth")
+    @Description("Number of assigned cells when the sample was taken")
+    int depth;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Nodes Per Second")
+    @Description("Throughput since the previous sample")
+    long nodesPerSecond;
+
+    @Label("Prefix")
+    @Description("Values of the first assigned cells, in fill order")
+    String prefix;
+}
@@ -0,0 +1,83 @@
+package com.codeoff;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Searches in flight, by canonical key (PuzzleSpec.toQuery,
+ * SolverC1Counter.toQuery), so identical requests share one run.
+ *
+ * The first request for a key claims the entry and starts the search; later
+ * requests and progress streams attach to the same entry and are answered
+ * from its result when it completes. Entries leave the registry when the
+ * search completes or fails.
+ */
+public final class SearchRegistry {
+
+    /**
+     * One search: its live progress, its eventual result and the admission
+     * decision it ran under.
+     */
+    public static final class Running<R> {
+        public final String key;
+        public final SearchProgress progress = new SearchProgress();
+        public final CompletableFuture<R> result = new CompletableFuture<>();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final AtomicInteger observers = new AtomicInteger();
+        volatile String admission;
+
+        Running(String key) {
+            this.key = key;
+        }
+
+        /** True for exactly one caller, which must start the search. */
+        public boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        public int attach() {
+            return observers.incrementAndGet();
+        }
+
+        public int detach() {
+            return observers.decrementAndGet();
+        }
+
+        public int observers() {
+            return observers.get();
+        }
+    }
+
+    private final ConcurrentHashMap<String, Running<?>> running = new ConcurrentHashMap<>();
+
+    /** The search for key, registering a new unclaimed one if none is running. */
+    @SuppressWarnings("unchecked")
+    public <R> Running<R> open(String key) {
+        return (Running<R>) running.computeIfAbsent(key, Running::new);
+    }
+
+    /** A finished, unregistered entry, e.g. for a result read from the store. */
+    public static <R> Running<R> completed(String key, R result) {
+        Running<R> run = new Running<>(key);
+        run.claim();
+        run.result.complete(result);
+        return run;
+    }
+
+    public <R> void complete(Running<R> run, R result, String admission) {
+        run.admission = admission;
+        running.remove(run.key, run);
+        run.result.complete(result);
+    }
+
+    public void fail(Running<?> run, Throwable error) {
+        running.remove(run.key, run);
+        run.result.completeExceptionally(error);
+    }
+
+    public int size() {
+        return running.size();
+    }
+}
@@ -0,0 +1,207 @@
+package com.codeoff;
+
+import java.util.concurrent.CancellationException;
+import jdk.jfr.FlightRecorder;
+
+
+/**
+ * Emits the solver JFR events (com.codeoff.Solve, com.codeoff.SearchProgress,
+ * com.codeoff.SearchBacktrack) for one search.
+ *
+ * Solvers call {@link #sample} only every {@link #SAMPLE_MASK}+1 nodes and
+ * {@link #backtracked} only for the first {@link #BACKTRACK_DEPTH} levels,
+ * and each hook returns immediately unless its event type is enabled in a
+ * running recording, so the search loop pays a mask test when JFR is off.
+ * The event classes are not even loaded until JFR has been started in this
+ * JVM: the first load of a jdk.jfr.Event subclass costs a few hundred
+ * milliseconds, which a cold solve would otherwise pay.
+ *
+ * When a {@link SearchProgress} is attached, each sample also publishes
+ * nodes, solutions, depth and the explored share of the prefix space
+ * (from the candidate lists the solver registered with {@link #track}).
+ *
+ * The events are enabled by default, so a standard recording picks them up:
+ *   jcmd <pid> JFR.start settings=profile duration=60s filename=solve.jfr
+ * Progress and backtrack events are throttled to one per
+ * -Dcodeoff.jfr.intervalMillis (default 100).
+ */
+final class SearchTelemetry {
+
+    /** Solvers call sample() when (nodes & SAMPLE_MASK) == 0. */
+    static final long SAMPLE_MASK = (1L << 16) - 1;
+
+    /** Solvers call backtracked() for fill positions up to this depth. */
+    static final int BACKTRACK_DEPTH = 3;
+
+    private static final int PREFIX_CELLS = 8;
+
+    // Fill levels that contribute to percent complete
+    private static final int PROGRESS_LEVELS = 6;
+    private static final long INTERVAL_NANOS =
+            Long.getLong("codeoff.jfr.intervalMillis", 100L) * 1_000_000L;
+
+    // Enablement probes, loaded on first use after JFR has started
+    private static final class Probes {
+        static final SearchProgressEvent PROGRESS = new SearchProgressEvent();
+        static final SearchBacktrackEvent BACKTRACK = new SearchBacktrackEvent();
+    }
+
+    private final String puzzle;
+    private SolveEvent solveEvent;
+
+    private long lastSampleNanos;
+    private long lastSampleNodes;
+    private long lastBacktrackNanos;
+    private long suppressedBacktracks;
+
+    // Live progress (optional) and the solver's per-level candidate lists
+    private SearchProgress progress;
+    private int[][] candidates;
+    private int[] candidateCounts;
+    private int firstPos;
+
+    /**
+     * Stops a search whose thread was interrupted (a cancelled batch
+     * puzzle). Solvers call it on sampled nodes, next to their node-limit
+     * test; the exception unwinds the search, so no partial result is
+     * returned or stored.
+     */
+    static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Search cancelled");
+        }
+    }
+
+    SearchTelemetry(String puzzle) {
+        this.puzzle = puzzle;
+    }
+
+    /**
+     * Registers the solver's candidate buffers: candidates[pos] holds the
+     * candidateCounts[pos] values tried at fill position pos, for pos >= firstPos.
+     */
+    void track(int[][] candidates, int[] candidateCounts, int firstPos) {
+        this.candidates = candidates;
+        this.candidateCounts = candidateCounts;
+        this.firstPos = firstPos;
+    }
+
+    void publishTo(SearchProgress progress) {
+        this.progress = progress;
+    }
+
+    void begin() {
+        lastSampleNanos = System.nanoTime();
+        lastBacktrackNanos = lastSampleNanos;
+        lastSampleNodes = 0;
+        suppressedBacktracks = 0;
+        if (progress != null) {
+            progress.started();
+        }
+        solveEvent = null;
+        if (FlightRecorder.isInitialized()) {
+            solveEvent = new SolveEvent();
+            solveEvent.begin();
+        }
+    }
+
+    void end(ValueOrder valueOrder, long nodes, boolean solved, boolean limitReached) {
+        end(valueOrder, nodes, solved ? 1 : 0, solved, limitReached, !solved && !limitReached);
+    }
+
+    /**
+     * @param exhausted the search visited its whole tree (for percent complete)
+     */
+    void end(ValueOrder valueOrder, long nodes, long solutions, boolean solved, boolean limitReached,
+             boolean exhausted) {
+        if (progress != null) {
+            progress.finish(nodes, solutions, exhausted);
+        }
+        if (solveEvent == null) return;
+        solveEvent.end();
+        if (solveEvent.shouldCommit()) {
+            solveEvent.puzzle = puzzle;
+            solveEvent.valueOrder = valueOrder.id;
+            solveEvent.nodes = nodes;
+            solveEvent.solved = solved;
+            solveEvent.limitReached = limitReached;
+            solveEvent.commit();
+        }
+    }
+
+    void sample(long nodes, int depth, int[] grid, int[] fillOrder) {
+        sample(nodes, 0, depth, grid, fillOrder);
+    }
+
+    void sample(long nodes, long solutions, int depth, int[] grid, int[] fillOrder) {
+        if (progress != null) {
+            progress.publish(nodes, solutions, depth, explored(grid, fillOrder, depth));
+        }
+        if (!FlightRecorder.isInitialized() || !Probes.PROGRESS.isEnabled()) return;
+
+        long now = System.nanoTime();
+        long elapsed = now - lastSampleNanos;
+        if (elapsed < INTERVAL_NANOS) return;
+
+        SearchProgressEvent event = new SearchProgressEvent();
+        event.puzzle = puzzle;
+        event.depth = depth;
+        event.nodes = nodes;
+        event.nodesPerSecond = (nodes - lastSampleNodes) * 1_000_000_000L / Math.max(1, elapsed);
+        event.prefix = prefix(grid, fillOrder, depth);
+        event.commit();
+
+        lastSampleNanos = now;
+        lastSampleNodes = nodes;
+    }
+
+    void backtracked(int depth, int value, long nodes) {
+        if (!FlightRecorder.isInitialized() || !Probes.BACKTRACK.isEnabled()) return;
+
+        long now = System.nanoTime();
+        if (now - lastBacktrackNanos < INTERVAL_NANOS) {
+            suppressedBacktracks++;
+            return;
+        }
+
+        SearchBacktrackEvent event = new SearchBacktrackEvent();
+        event.puzzle = puzzle;
+        event.depth = depth;
+        event.value = value;
+        event.nodes = nodes;
+        event.suppressed = suppressedBacktracks;
+        event.commit();
+
+        lastBacktrackNanos = now;
+        suppressedBacktracks = 0;
+    }
+
+    // Share of the prefix space before the current path, from the position of
+    // each level's value in its candidate list
+    private double explored(int[] grid, int[] fillOrder, int depth) {
+        if (candidates == null) return 0;
+        double done = 0;
+        double scale = 1;
+        int last = Math.min(depth, firstPos + PROGRESS_LEVELS);
+        for (int pos = firstPos; pos < last; pos++) {
+            int n = candidateCounts[pos];
+            int v = grid[fillOrder[pos]];
+            int i = 0;
+            while (i < n && candidates[pos][i] != v) i++;
+            if (i == n) break;
+            done += scale * i / n;
+            scale /= n;
+        }
+        return done;
+    }
+
+    private static String prefix(int[] grid, int[] fillOrder, int depth) {
+        StringBuilder sb = new StringBuilder();
+        int n = Math.min(Math.min(depth, PREFIX_CELLS), fillOrder.length);
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(grid[fillOrder[i]]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,497 @@
+package com.codeoff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Estimates the size of a backtracking search tree with Knuth's random
+ * probes, without running the search.
+ *
+ * A probe walks from the root to a leaf or dead end along the solver's fill
+ * order, at every level counting the values that pass the solver's local
+ * checks (d_k) and following one of them at random. The products
+ * d_1 * ... * d_k are unbiased estimates of the number of nodes on level
+ * k, so 1 + d_1 + d_1*d_2 + ... estimates the whole tree and, when the
+ * probe ends in a complete grid that passes the final checks, d_1 * ... * d_n
+ * estimates the number of solutions. Averages over many probes converge to
+ * the true values.
+ *
+ * Stratified mode ({@link #estimate(int, long, int, ExecutorService)})
+ * enumerates every node down to a small depth exactly and treats the
+ * subtree under each node at that depth as a stratum. A pilot round runs a
+ * few probes per stratum to measure its standard deviation; a second,
+ * independent round then allocates the probes in proportion to it (Neyman
+ * allocation) and supplies the means. Probes run in parallel jobs, each
+ * with its own split random stream, so results depend only on the seed
+ * (depth 0 is plain Knuth sampling, in parallel). Standard errors come from the per-stratum
+ * variances; Knuth estimates are heavy-tailed, so the normal 95% intervals
+ * are approximate and can be too narrow when a rare, very large subtree has
+ * not been sampled yet.
+ *
+ * The modelled trees are those of the solvers:
+ *  - spec puzzles: fixed seed first, then C1 (+ C2 on 5x5, + rook rows and
+ *    columns on 6x6) per cell; C3 and the median checked on complete grids
+ *  - C1 count (SolverC1Counter): empty board, C1 only, every complete grid counts
+ *
+ * Value order does not change the size of the full tree; the nodes a
+ * first-solution search visits are approximated as tree / (solutions + 1).
+ */
+public final class SearchTreeEstimator {
+
+    /** z for two-sided 95% normal intervals. */
+    private static final double Z95 = 1.959964;
+
+    // Deepest stratification and most strata it may produce
+    private static final int MAX_STRATIFY_DEPTH = 4;
+    private static final int MAX_STRATA = 1 << 17;
+
+    // Probes per parallel job and most per stratum in the pilot round
+    private static final int JOB_PROBES = 1 << 12;
+    private static final int PILOT_PROBES = 8;
+
+    // Solver nodes a probe costs per cell of the board (measured: about 6)
+    private static final int PROBE_NODES_PER_CELL = 8;
+
+    /**
+     * Means over a set of probes, with standard errors.
+     */
+    public static final class Estimate {
+        public final int probes;
+        public final double treeNodes;
+        public final double solutions;
+        public final double treeStdError;
+        public final double solutionsStdError;
+        public final int strata;
+        public final int stratifyDepth;
+        public final long millis;
+
+        Estimate(int probes, double treeNodes, double solutions, double treeStdError, double solutionsStdError,
+                 int strata, int stratifyDepth, long millis) {
+            this.probes = probes;
+            this.treeNodes = treeNodes;
+            this.solutions = solutions;
+            this.treeStdError = treeStdError;
+            this.solutionsStdError = solutionsStdError;
+            this.strata = strata;
+            this.stratifyDepth = stratifyDepth;
+            this.millis = millis;
+        }
+
+        /** Approximate nodes until a depth-first search finds its first solution. */
+        public double firstSolutionNodes() {
+            return treeNodes / (solutions + 1);
+        }
+
+        public double treeLow() {
+            return Math.max(1, treeNodes - Z95 * treeStdError);
+        }
+
+        public double treeHigh() {
+            return treeNodes + Z95 * treeStdError;
+        }
+
+        public double solutionsLow() {
+            return Math.max(0, solutions - Z95 * solutionsStdError);
+        }
+
+        public double solutionsHigh() {
+            return solutions + Z95 * solutionsStdError;
+        }
+
+        /** Multi-line summary with 95% intervals. */
+        public String describe() {
+            return String.format(Locale.ROOT, """
+                    Search tree: ~%.4g nodes (95%% CI %.4g .. %.4g, rel. error %.2f%%)
+                    Solutions:   ~%.4g (95%% CI %.4g .. %.4g, rel. error %.2f%%)
+                    Probes: %d over %d strata (depth %d), %d ms
+                    """,
+                    treeNodes, treeLow(), treeHigh(), relative(treeStdError, treeNodes),
+                    solutions, solutionsLow(), solutionsHigh(), relative(solutionsStdError, solutions),
+                    probes, strata, stratifyDepth, millis);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "~%.3g nodes, ~%.3g solutions (%d probes)",
+                    treeNodes, solutions, probes);
+        }
+
+        private static double relative(double stdError, double mean) {
+            return mean == 0 ? 0 : 100 * stdError / mean;
+        }
+    }
+
+    private final BoardTopology topology;
+    private final int cellCount;
+    private final int size;
+    private final int startPos;
+    private final int fixedIndex;
+    private final int fixedValue;
+    private final boolean useDiagonal;
+    private final int[] parityCells;
+    private final int medianTarget;
+    private final boolean[] isRook;
+    private final boolean hasRooks;
+
+    private SearchTreeEstimator(BoardTopology topology, int fixedIndex, int fixedValue, boolean useDiagonal,
+                                int[] parityCells, int medianTarget, int[] rookValues) {
+        this.topology = topology;
+        this.cellCount = topology.cellCount;
+        this.size = topology.size;
+        this.startPos = fixedIndex < 0 ? 0 : 1;
+        this.fixedIndex = fixedIndex;
+        this.fixedValue = fixedValue;
+        this.useDiagonal = useDiagonal;
+        this.parityCells = parityCells;
+        this.medianTarget = medianTarget;
+        this.isRook = new boolean[cellCount + 1];
+        for (int v : rookValues) isRook[v] = true;
+        this.hasRooks = rookValues.length > 0;
+    }
+
+    /** The tree searched by the backtracking solver for the spec. */
+    public static SearchTreeEstimator forSpec(PuzzleSpec spec) {
+        boolean fiveByFive = spec.type != PuzzleSpec.Type.ROOK_6X6;
+        return new SearchTreeEstimator(spec.topology(), spec.fixedIndex, spec.fixedValue, fiveByFive,
+                fiveByFive ? Solver5x5.PRIME_CELL_INDICES : new int[0],
+                spec.type == PuzzleSpec.Type.MEDIAN_5X5 ? spec.medianTarget : 0,
+                spec.rookValues());
+    }
+
+    /** The tree enumerated by SolverC1Counter. */
+    public static SearchTreeEstimator forC1Count() {
+        return new SearchTreeEstimator(BoardTopology.GRID_5X5_C1, -1, 0, false, new int[0], 0, new int[0]);
+    }
+
+    /**
+     * The work of an estimate in solver nodes, for admission control. A
+     * stratified run is costed as if it had the most strata, two probes each.
+     */
+    public double costNodes(int probes, int stratifyDepth) {
+        long total = stratifyDepth == 0 ? probes : Math.max(probes, 2L * MAX_STRATA);
+        return total * (double) cellCount * PROBE_NODES_PER_CELL;
+    }
+
+    /** Plain Knuth estimate on the calling thread. */
+    public Estimate estimate(int probes, long seed) {
+        return estimateBelow(null, probes, seed);
+    }
+
+    /**
+     * Plain Knuth estimate of the subtree below a prefix: values for the
+     * fill positions after the fixed cell, which must pass the solver's checks.
+     */
+    public Estimate estimateBelow(int[] prefix, int probes, long seed) {
+        long start = System.nanoTime();
+        Walker walker = new Walker();
+        Moments moments = new Moments();
+        walker.probe(new SplittableRandom(seed), prefix, probes, moments);
+        return new Estimate(probes, moments.treeMean(), moments.solutionMean(),
+                Math.sqrt(moments.treeVariance() / probes), Math.sqrt(moments.solutionVariance() / probes),
+                1, 0, (System.nanoTime() - start) / 1_000_000L);
+    }
+
+    /**
+     * Stratified estimate: nodes above stratifyDepth counted exactly, the
+     * subtrees below sampled with about probes probes in total (a pilot of
+     * up to {@value #PILOT_PROBES} and then at least 2 per stratum), run as
+     * jobs on pool (or on the calling thread if pool is null).
+     */
+    public Estimate estimate(int probes, long seed, int stratifyDepth, ExecutorService pool) {
+        if (stratifyDepth < 0 || stratifyDepth > MAX_STRATIFY_DEPTH || startPos + stratifyDepth >= cellCount) {
+            throw new IllegalArgumentException("stratify must be in 0.." + MAX_STRATIFY_DEPTH);
+        }
+        if (probes < 1) {
+            throw new IllegalArgumentException("probes must be positive");
+        }
+        long start = System.nanoTime();
+
+        List<int[]> strata = new ArrayList<>();
+        long exactNodes = new Walker().enumerate(stratifyDepth, strata);
+        int count = strata.size();
+        if (count == 0) {
+            // The whole tree lies above the stratification depth
+            return new Estimate(0, exactNodes, 0, 0, 0, 0, stratifyDepth, (System.nanoTime() - start) / 1_000_000L);
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        Moments[] moments = moments(count);
+        int[] allocation = new int[count];
+        long pilotProbes = 0;
+        if (count == 1) {
+            allocation[0] = probes;
+        } else {
+            // Pilot: a few probes per stratum, used only to allocate the rest by
+            // tree-size deviation (Neyman); reusing them in the means would bias
+            // heavy-tailed strata whose pilot happened to miss a large subtree
+            int pilot = Math.max(2, Math.min(PILOT_PROBES, probes / (4 * count)));
+            Moments[] pilotMoments = moments(count);
+            Arrays.fill(allocation, pilot);
+            run(strata, allocation, pilotMoments, random, pool);
+            pilotProbes = (long) pilot * count;
+
+            long remaining = Math.max(0, probes - pilotProbes - 2L * count);
+            double[] deviation = new double[count];
+            double total = 0;
+            for (int s = 0; s < count; s++) {
+                deviation[s] = Math.sqrt(pilotMoments[s].treeVariance());
+                total += deviation[s];
+            }
+            for (int s = 0; s < count; s++) {
+                long share = total == 0 ? remaining / count : (long) (remaining * deviation[s] / total);
+                allocation[s] = (int) Math.min(Integer.MAX_VALUE, 2 + share);
+            }
+        }
+        run(strata, allocation, moments, random, pool);
+
+        double tree = exactNodes;
+        double solutions = 0;
+        double treeVariance = 0;
+        double solutionVariance = 0;
+        long used = pilotProbes;
+        for (Moments m : moments) {
+            tree += m.treeMean();
+            solutions += m.solutionMean();
+            treeVariance += m.treeVariance() / m.n;
+            solutionVariance += m.solutionVariance() / m.n;
+            used += m.n;
+        }
+        return new Estimate((int) Math.min(Integer.MAX_VALUE, used), tree, solutions,
+                Math.sqrt(treeVariance), Math.sqrt(solutionVariance), count, stratifyDepth,
+                (System.nanoTime() - start) / 1_000_000L);
+    }
+
+    private static Moments[] moments(int count) {
+        Moments[] moments = new Moments[count];
+        for (int s = 0; s < count; s++) moments[s] = new Moments();
+        return moments;
+    }
+
+    // Runs allocation[s] probes under each stratum, split into jobs of at most JOB_PROBES
+    private void run(List<int[]> strata, int[] allocation, Moments[] moments, SplittableRandom random,
+                     ExecutorService pool) {
+        List<Callable<Void>> jobs = new ArrayList<>();
+        for (int s = 0; s < strata.size(); s++) {
+            int[] prefix = strata.get(s);
+            Moments target = moments[s];
+            for (int left = allocation[s]; left > 0; left -= JOB_PROBES) {
+                int n = Math.min(left, JOB_PROBES);
+                SplittableRandom jobRandom = random.split();
+                jobs.add(() -> {
+                    Moments partial = new Moments();
+                    new Walker().probe(jobRandom, prefix, n, partial);
+                    synchronized (target) {
+                        target.add(partial);
+                    }
+                    return null;
+                });
+            }
+        }
+        if (pool == null) {
+            for (Callable<Void> job : jobs) {
+                try {
+                    job.call();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return;
+        }
+        try {
+            for (Future<Void> f : pool.invokeAll(jobs)) f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Estimate interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Sums and sums of squares of per-probe tree and solution estimates.
+     */
+    private static final class Moments {
+        long n;
+        double tree;
+        double tree2;
+        double solutions;
+        double solutions2;
+
+        void add(double t, double s) {
+            n++;
+            tree += t;
+            tree2 += t * t;
+            solutions += s;
+            solutions2 += s * s;
+        }
+
+        void add(Moments o) {
+            n += o.n;
+            tree += o.tree;
+            tree2 += o.tree2;
+            solutions += o.solutions;
+            solutions2 += o.solutions2;
+        }
+
+        double treeMean() {
+            return n == 0 ? 0 : tree / n;
+        }
+
+        double solutionMean() {
+            return n == 0 ? 0 : solutions / n;
+        }
+
+        double treeVariance() {
+            return variance(tree, tree2);
+        }
+
+        double solutionVariance() {
+            return variance(solutions, solutions2);
+        }
+
+        private double variance(double sum, double sumSquares) {
+            if (n < 2) return 0;
+            return Math.max(0, (sumSquares - sum * sum / n) / (n - 1));
+        }
+    }
+
+    /**
+     * Board state for walks from one thread.
+     */
+    private final class Walker {
+        final int[] grid = new int[cellCount];
+        final boolean[] used = new boolean[cellCount + 1];
+        final boolean[] rookRows = new boolean[size];
+        final boolean[] rookCols = new boolean[size];
+        final int[] candidates = new int[cellCount];
+
+        /**
+         * Counts the nodes above depth levels below the root exactly and
+         * collects the value prefixes of the nodes at that depth.
+         */
+        long enumerate(int depth, List<int[]> strata) {
+            reset(null);
+            return enumerate(startPos, depth, new int[depth], strata);
+        }
+
+        private long enumerate(int pos, int depth, int[] prefix, List<int[]> strata) {
+            int level = pos - startPos;
+            if (level == depth) {
+                if (strata.size() == MAX_STRATA) {
+                    throw new IllegalArgumentException("stratify depth " + depth + " gives more than "
+                            + MAX_STRATA + " strata");
+                }
+                strata.add(prefix.clone());
+                return 0;
+            }
+            long nodes = 1;
+            int idx = topology.fillOrder[pos];
+            for (int v = 1; v <= cellCount; v++) {
+                if (used[v] || !allowed(idx, v)) continue;
+                prefix[level] = v;
+                place(idx, v);
+                nodes += enumerate(pos + 1, depth, prefix, strata);
+                unplace(idx, v);
+            }
+            return nodes;
+        }
+
+        // n root-to-leaf walks below the prefix (null = the root)
+        void probe(SplittableRandom random, int[] prefix, int n, Moments moments) {
+            int from = startPos + (prefix == null ? 0 : prefix.length);
+            int[] fillOrder = topology.fillOrder;
+            for (int p = 0; p < n; p++) {
+                reset(prefix);
+                double weight = 1;
+                double nodes = 1;
+                int pos = from;
+                for (; pos < cellCount; pos++) {
+                    int idx = fillOrder[pos];
+                    int d = 0;
+                    for (int v = 1; v <= cellCount; v++) {
+                        if (!used[v] && allowed(idx, v)) candidates[d++] = v;
+                    }
+                    if (d == 0) break;
+                    weight *= d;
+                    nodes += weight;
+                    place(idx, candidates[random.nextInt(d)]);
+                }
+                moments.add(nodes, pos == cellCount && finalChecks() ? weight : 0);
+            }
+        }
+
+        private void reset(int[] prefix) {
+            Arrays.fill(grid, 0);
+            Arrays.fill(used, false);
+            Arrays.fill(rookRows, false);
+            Arrays.fill(rookCols, false);
+            if (fixedIndex >= 0) {
+                place(fixedIndex, fixedValue);
+            }
+            if (prefix != null) {
+                for (int i = 0; i < prefix.length; i++) place(topology.fillOrder[startPos + i], prefix[i]);
+            }
+        }
+
+        private void place(int idx, int v) {
+            grid[idx] = v;
+            used[v] = true;
+            if (isRook[v]) {
+                rookRows[idx / size] = true;
+                rookCols[idx % size] = true;
+            }
+        }
+
+        private void unplace(int idx, int v) {
+            grid[idx] = 0;
+            used[v] = false;
+            if (isRook[v]) {
+                rookRows[idx / size] = false;
+                rookCols[idx % size] = false;
+            }
+        }
+
+        // The solvers' per-cell checks against already-filled cells
+        private boolean allowed(int idx, int v) {
+            for (int nb : topology.orthogonalNeighbors[idx]) {
+                int nv = grid[nb];
+                if (nv != 0 && Math.abs(nv - v) == 1) return false;
+            }
+            if (useDiagonal) {
+                for (int nb : topology.diagonalNeighbors[idx]) {
+                    int nv = grid[nb];
+                    if (nv != 0 && Math.abs(nv - v) == 2) return false;
+                }
+            }
+            if (hasRooks && isRook[v] && (rookRows[idx / size] || rookCols[idx % size])) {
+                return false;
+            }
+            return true;
+        }
+
+        // C3 and the median, checked by the 5x5 solvers once the grid is complete
+        private boolean finalChecks() {
+            int sum = 0;
+            for (int c : parityCells) sum += grid[c];
+            if ((sum & 1) != 0) return false;
+
+            if (medianTarget != 0) {
+                int below = 0;
+                boolean present = false;
+                for (int c = 0; c < size; c++) {
+                    if (grid[c] < medianTarget) below++;
+                    present |= grid[c] == medianTarget;
+                }
+                return present && below == size / 2;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.codeoff;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Runnable checks of the invariants the fast paths rely on:
+ *  - LocalSearchSolver: after random swaps, the incrementally updated
+ *    violation counts equal a full recompute
+ *  - ResultStore: a record torn mid-write is dropped when the store is
+ *    reopened, every record before it is still found, and appends resume
+ *  - AdmissionController: admit, queue, downgrade and reject decisions
+ *    against the heavy budget, its release, and the bounded bulk queue
+ *  - SolutionIndex: paging through every rank yields each solution once,
+ *    in fill order and ranked at its position, and unranking a sampled
+ *    solution's rank gives it back
+ *
+ * Usage: ./run.sh --check, or java -cp out/codeoff.jar com.codeoff.SelfCheck
+ * Prints one line per check and exits with status 1 on the first failure.
+ */
+public class SelfCheck {
+
+    private interface Check {
+        void run() throws Exception;
+    }
+
+    public static void main(String[] args) {
+        run("local search: incremental cost equals a full recompute", SelfCheck::checkLocalSearchCost);
+        run("result store: reopening after a torn write restores the index", SelfCheck::checkStoreRecovery);
+        run("admission: decisions follow the estimates and the heavy budget", SelfCheck::checkAdmission);
+        run("solution index: ranks and solutions round-trip in fill order", SelfCheck::checkSolutionIndex);
+        System.out.println("All checks passed");
+    }
+
+    private static void run(String name, Check check) {
+        long start = System.nanoTime();
+        try {
+            check.run();
+        } catch (Exception | AssertionError e) {
+            System.out.println("FAIL " + name + ": " + e);
+            System.exit(1);
+        }
+        System.out.println("ok   " + name + " (" + (System.nanoTime() - start) / 1_000_000 + " ms)");
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    // ----------------- Checks -----------------
+
+    private static void checkLocalSearchCost() {
+        for (String query : new String[]{"puzzle=solve5x5", "puzzle=solveMedian&median=13", "puzzle=solve6x6"}) {
+            for (long seed = 1; seed <= 4; seed++) {
+                PuzzleSpec spec = PuzzleSpec.parse(query).withEngine(PuzzleSpec.Engine.LOCAL);
+                PuzzleSpec seeded = spec.withSearch(spec.valueOrder, seed, spec.nodeLimit);
+                int mismatches = new LocalSearchSolver(seeded).checkIncrementalCost(5_000);
+                require(mismatches == 0, mismatches + " swaps of 5000 disagree with a recompute for " + seeded);
+            }
+        }
+    }
+
+    private static void checkStoreRecovery() throws IOException {
+        Path dir = Files.createTempDirectory("codeoff-selfcheck");
+        try {
+            PuzzleSpec[] specs = new PuzzleSpec[3];
+            int[] grid = new int[25];
+            for (int i = 0; i < grid.length; i++) grid[i] = (i * 7) % 25 + 1;
+            String countQuery = new SolverC1Counter(1_000_000L, ValueOrder.ASCENDING, 0L).toQuery();
+            ResultStore.Count count = new ResultStore.Count(countQuery, BigInteger.valueOf(12345), 1_000_000L, 60L,
+                    true, "12345 solutions", false);
+
+            long tornSize;
+            try (ResultStore store = ResultStore.open(dir, 0)) {
+                for (int i = 0; i < specs.length; i++) {
+                    PuzzleSpec spec = PuzzleSpec.defaults(PuzzleSpec.Type.BASE_5X5);
+                    specs[i] = spec.withSearch(spec.valueOrder, i, 1_000_000L + i);
+                    store.putSolution(new SpecSolver.Outcome(specs[i], grid, 1000 + i, false, 60L));
+                }
+                store.putCount(count);
+                require(store.size() == 4, "expected 4 records, found " + store.size());
+                tornSize = Files.size(store.file()) - 7; // cut into the count record
+            }
+            try (FileChannel channel = FileChannel.open(dir.resolve("results.log"), StandardOpenOption.WRITE)) {
+                channel.truncate(tornSize);
+            }
+
+            try (ResultStore store = ResultStore.open(dir, 0)) {
+                require(store.size() == 3, "expected 3 records after the torn write, found " + store.size());
+                for (int i = 0; i < specs.length; i++) {
+                    SpecSolver.Outcome found = store.findSolution(specs[i]);
+                    require(found != null && found.nodes == 1000 + i && Arrays.equals(found.grid, grid),
+                            "record " + i + " lost or changed: " + found);
+                }
+                require(store.findCount(countQuery) == null, "the torn count record was still found");
+                store.putCount(count);
+            }
+            try (ResultStore store = ResultStore.open(dir, 0)) {
+                require(store.size() == 4, "expected 4 records after appending again, found " + store.size());
+                ResultStore.Count found = store.findCount(countQuery);
+                require(found != null && found.solutions.equals(count.solutions), "appended count not found: " + found);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    private static void checkAdmission() throws InterruptedException {
+        // 1000 nodes/ms: cheap up to 100 ms, heavy runs capped at 1000 ms, 2000 ms of heavy budget,
+        // one bulk thread with one waiting batch
+        try (AdmissionController admission = new AdmissionController(100, 1000, 2000, 1, 64, 1_000_000, 1, 1)) {
+            AdmissionController.Ticket cheap = admission.admit(PuzzleSpec.defaults(PuzzleSpec.Type.BASE_5X5));
+            require(cheap.decision == AdmissionController.Decision.ADMIT && cheap.nodeLimit == 1_000_000
+                    && cheap.escalates(), "solve5x5 should be admitted with the cheap cap: " + cheap.describe());
+
+            AdmissionController.Ticket count = admission.admitCount(Long.MAX_VALUE);
+            require(count.decision == AdmissionController.Decision.DOWNGRADE && count.nodeLimit == 1_000_000
+                    && count.reservedMillis == 1000, "a full C1 count should be downgraded: " + count.describe());
+
+            AdmissionController.Ticket work = admission.admitWork(800_000);
+            require(work.decision == AdmissionController.Decision.QUEUE && work.reservedMillis == 800,
+                    "800 ms of work should queue: " + work.describe());
+            AdmissionController.Ticket over = admission.admitWork(300_000);
+            require(over.decision == AdmissionController.Decision.REJECT && admission.heavyReservedMillis() == 1800,
+                    "work beyond the budget should be rejected: " + over.describe());
+            require(admission.escalate(cheap).decision == AdmissionController.Decision.REJECT,
+                    "escalation beyond the budget should be rejected");
+
+            CountDownLatch ran = new CountDownLatch(2);
+            admission.execute(count, ran::countDown);
+            admission.execute(work, ran::countDown);
+            require(ran.await(5, TimeUnit.SECONDS), "heavy tasks did not run");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (admission.heavyReservedMillis() != 0 && System.nanoTime() < deadline) Thread.sleep(1);
+            require(admission.heavyReservedMillis() == 0,
+                    admission.heavyReservedMillis() + " ms still reserved after the heavy tasks finished");
+
+            AdmissionController.Ticket escalated = admission.escalate(cheap);
+            require(escalated.decision == AdmissionController.Decision.DOWNGRADE && escalated.nodeLimit == 1_000_000,
+                    "escalation with budget free should run bounded on the heavy pool: " + escalated.describe());
+            admission.execute(escalated, () -> { });
+
+            CountDownLatch release = new CountDownLatch(1);
+            require(admission.executeBulk(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }), "the first batch should run");
+            require(admission.executeBulk(() -> { }), "the second batch should wait");
+            require(!admission.executeBulk(() -> { }), "a batch beyond the bulk queue should be refused");
+            release.countDown();
+        }
+    }
+
+    private static void checkSolutionIndex() {
+        checkRanks(SolutionIndex.build(SolutionIndex.Space.C1,
+                new int[]{1, 3, 5, 4, 13, 2, 6, 8, 10, 7, 9, 11, 12, 14, 15, 16, 17}, 3, 100_000_000L));
+        checkRanks(SolutionIndex.build(SolutionIndex.Space.of(PuzzleSpec.defaults(PuzzleSpec.Type.BASE_5X5)),
+                new int[]{1, 3, 5, 4, 2, 6, 8, 10, 7, 9, 11, 12, 14, 15, 16, 17}, 3, 100_000_000L));
+    }
+
+    private static void checkRanks(SolutionIndex index) {
+        long total = index.total();
+        require(total > 1, "index is empty: " + index.describe());
+        // Sampled ranks and the ends: unrank one solution, rank it, unrank again
+        long[] sampled = index.sample(64, 7L);
+        long[] ranks = Arrays.copyOf(sampled, sampled.length + 2);
+        ranks[sampled.length] = 0;
+        ranks[sampled.length + 1] = total - 1;
+        for (long rank : ranks) {
+            int[] grid = index.solutions(rank, 1).get(0);
+            require(index.rank(grid) == rank, "solution at rank " + rank + " ranks as " + index.rank(grid));
+            require(Arrays.equals(index.solutions(index.rank(grid), 1).get(0), grid),
+                    "unrank(rank(g)) != g at rank " + rank);
+        }
+
+        // Every rank in order: strictly increasing grids in fill order, total solutions in all
+        int[] fillOrder = index.space.fillOrder();
+        int[] previous = null;
+        long seen = 0;
+        for (long k = 0; k < total; k += SolutionIndex.MAX_PER_REQUEST) {
+            for (int[] grid : index.solutions(k, SolutionIndex.MAX_PER_REQUEST)) {
+                require(previous == null || compareInFillOrder(previous, grid, fillOrder) < 0,
+                        "solution at rank " + seen + " is not after the one before it");
+                require(index.rank(grid) == seen, "solution at rank " + seen + " ranks as " + index.rank(grid));
+                previous = grid;
+                seen++;
+            }
+        }
+        require(seen == total, "paging through the ranks gave " + seen + " solutions, not " + total);
+    }
+
+    private static int compareInFillOrder(int[] a, int[] b, int[] fillOrder) {
+        for (int idx : fillOrder) {
+            if (a[idx] != b[idx]) return Integer.compare(a[idx], b[idx]);
+        }
+        return 0;
+    }
+}
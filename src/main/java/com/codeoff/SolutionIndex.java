@@ -0,0 +1,685 @@
+package com.codeoff;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Ranks and unranks the solutions of the Solver5x5 and C1-only spaces below
+ * a prefix, from a table of subtree solution counts.
+ *
+ * Solutions are numbered from 0 in lexicographic fill order: by their values
+ * along BoardTopology's fill order, which is the order in which the solvers
+ * find them with ascending value order. An index covers the solutions that
+ * extend a prefix (values for the first fill positions after the fixed
+ * cell). For every node depth levels below the prefix that has solutions,
+ * the table holds its value path and the running total of solutions up to
+ * and including its subtree, so the count under any shallower prefix is a
+ * difference of two totals. The k-th solution is found by binary search for
+ * the subtree holding k and an enumeration of that subtree alone; uniform
+ * random samples are ranks drawn uniformly from [0, total).
+ *
+ * Building enumerates the sub-space once, so it is bounded by a node budget.
+ * The full spaces (about 5.5e20 and 4.9e23 solutions) cannot be indexed; the
+ * prefix must fix enough cells for the rest to fit. A quick Knuth estimate
+ * (SearchTreeEstimator) rejects sub-spaces well beyond the budget before
+ * any enumeration. A deeper table makes lookups shorter and the table larger.
+ *
+ * File layout (big-endian), one file per index in the catalog directory:
+ *   magic 'C','S','I', version 1
+ *   query (modified UTF-8), depth byte, build nodes and millis (long)
+ *   int subtree count, then per subtree: depth value bytes and its running total (long)
+ *   int CRC32 of everything before it
+ */
+public final class SolutionIndex {
+
+    private static final byte[] MAGIC = {'C', 'S', 'I', 1};
+
+    public static final int DEFAULT_DEPTH = 4;
+    public static final long DEFAULT_NODE_LIMIT = 100_000_000L;
+    // Largest build budget a request may ask for (a couple of minutes on one core)
+    public static final long MAX_NODE_LIMIT = 2_000_000_000L;
+    public static final int MAX_PER_REQUEST = 1000;
+    private static final int MAX_DEPTH = 8;
+    private static final int MAX_SUBTREES = 1 << 20;
+
+    // Probes of the pre-build estimate
+    private static final int ESTIMATE_PROBES = 2000;
+
+    /**
+     * A solution space: solve5x5 with its fixed cell, or the C1-only grids.
+     */
+    public static final class Space {
+
+        /** Every 5x5 grid with C1 and no fixed cell (SolverC1Counter). */
+        public static final Space C1 = new Space("puzzle=countC1", BoardTopology.GRID_5X5_C1, -1, 0,
+                false, new int[0], SearchTreeEstimator.forC1Count());
+
+        final String query;
+        final BoardTopology topology;
+        final int fixedIndex;
+        final int fixedValue;
+        final boolean diagonal;
+        final int[] parityCells;
+        final int startPos;
+        private final SearchTreeEstimator estimator;
+
+        private Space(String query, BoardTopology topology, int fixedIndex, int fixedValue, boolean diagonal,
+                      int[] parityCells, SearchTreeEstimator estimator) {
+            this.query = query;
+            this.topology = topology;
+            this.fixedIndex = fixedIndex;
+            this.fixedValue = fixedValue;
+            this.diagonal = diagonal;
+            this.parityCells = parityCells;
+            this.startPos = fixedIndex < 0 ? 0 : 1;
+            this.estimator = estimator;
+        }
+
+        /** The Solver5x5 space for the spec's fixed cell and value. */
+        public static Space of(PuzzleSpec spec) {
+            if (spec.type != PuzzleSpec.Type.BASE_5X5) {
+                throw new IllegalArgumentException("Solution indexes cover solve5x5 and countC1, not " + spec.type.id);
+            }
+            int size = spec.size();
+            String query = "puzzle=solve5x5&fixedRow=" + (spec.fixedIndex / size + 1)
+                    + "&fixedCol=" + (spec.fixedIndex % size + 1) + "&fixedValue=" + spec.fixedValue;
+            return new Space(query, spec.topology(), spec.fixedIndex, spec.fixedValue, true,
+                    Solver5x5.PRIME_CELL_INDICES, SearchTreeEstimator.forSpec(spec));
+        }
+
+        /** Returns a copy of the fill order (row-major cell indices). */
+        public int[] fillOrder() {
+            return topology.fillOrder();
+        }
+    }
+
+    public final Space space;
+    public final String query;
+    public final int depth;
+    public final long nodes;
+    public final long millis;
+    private final int[] prefix;
+    private final byte[] paths;
+    private final long[] totals;
+
+    private SolutionIndex(Space space, int[] prefix, int depth, byte[] paths, long[] totals, long nodes, long millis) {
+        this.space = space;
+        this.query = query(space, prefix, depth);
+        this.depth = depth;
+        this.prefix = prefix;
+        this.paths = paths;
+        this.totals = totals;
+        this.nodes = nodes;
+        this.millis = millis;
+    }
+
+    /** Canonical key of the index: the space, prefix and depth. */
+    public static String query(Space space, int[] prefix, int depth) {
+        StringBuilder sb = new StringBuilder(space.query).append("&prefix=");
+        for (int i = 0; i < prefix.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(prefix[i]);
+        }
+        return sb.append("&depth=").append(depth).toString();
+    }
+
+    /** Comma-separated values (a prefix or a row-major grid); null or empty gives none. */
+    public static int[] parseValues(String s) {
+        if (s == null || s.isEmpty()) {
+            return new int[0];
+        }
+        String[] parts = s.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) values[i] = Integer.parseInt(parts[i].trim());
+        return values;
+    }
+
+    /** Number of solutions below the prefix. */
+    public long total() {
+        return totals.length == 0 ? 0 : totals[totals.length - 1];
+    }
+
+    /** Number of subtrees in the table (those with at least one solution). */
+    public int subtrees() {
+        return totals.length;
+    }
+
+    public int[] prefix() {
+        return prefix.clone();
+    }
+
+    /**
+     * Up to n consecutive solutions from rank k, as row-major grids.
+     */
+    public List<int[]> solutions(long k, int n) {
+        if (k < 0 || k >= total()) {
+            throw new IllegalArgumentException(total() == 0
+                    ? "No solutions below prefix " + Arrays.toString(prefix)
+                    : "k must be in 0.." + (total() - 1));
+        }
+        checkCount(n);
+        List<int[]> out = new ArrayList<>(n);
+        Walker walker = new Walker(space);
+        int subtree = subtreeOf(k);
+        long[] skip = {k - start(subtree)};
+        for (; subtree < totals.length && out.size() < n; subtree++) {
+            walker.resetTo(prefix, paths, subtree, depth);
+            walker.visit(walker.base + depth, grid -> {
+                if (skip[0] > 0) {
+                    skip[0]--;
+                    return true;
+                }
+                out.add(grid.clone());
+                return out.size() < n;
+            });
+        }
+        return out;
+    }
+
+    /**
+     * Rank of a solution (row-major values) that extends the prefix.
+     */
+    public long rank(int[] grid) {
+        Walker walker = new Walker(space);
+        walker.check(prefix, grid);
+        int[] fillOrder = space.topology.fillOrder;
+        int base = walker.base;
+
+        // Subtree whose path matches the grid; paths are sorted lexicographically
+        int lo = 0;
+        int hi = totals.length - 1;
+        int subtree = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = 0;
+            for (int d = 0; d < depth && cmp == 0; d++) {
+                cmp = Integer.compare(paths[mid * depth + d], grid[fillOrder[base + d]]);
+            }
+            if (cmp == 0) {
+                subtree = mid;
+                break;
+            }
+            if (cmp < 0) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        if (subtree < 0) {
+            throw new IllegalStateException("Solution missing from index " + query);
+        }
+
+        long[] before = {0};
+        walker.resetTo(prefix, paths, subtree, depth);
+        walker.visit(base + depth, g -> {
+            if (Arrays.equals(g, grid)) return false;
+            before[0]++;
+            return true;
+        });
+        return start(subtree) + before[0];
+    }
+
+    /** n ranks drawn uniformly from [0, total), so their solutions are uniform samples. */
+    public long[] sample(int n, long seed) {
+        if (total() == 0) {
+            throw new IllegalArgumentException("No solutions below prefix " + Arrays.toString(prefix));
+        }
+        checkCount(n);
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] ranks = new long[n];
+        for (int i = 0; i < n; i++) ranks[i] = random.nextLong(total());
+        return ranks;
+    }
+
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Solutions below prefix ").append(Arrays.toString(prefix)).append(": ").append(total()).append('\n');
+        sb.append(String.format(Locale.ROOT, "Index: %d subtrees at depth %d, built in %d nodes, %d ms%n",
+                totals.length, depth, nodes, millis));
+        sb.append("Fill order (row,col):");
+        int size = space.topology.size;
+        for (int idx : space.topology.fillOrder) {
+            sb.append(" (").append(idx / size + 1).append(',').append(idx % size + 1).append(')');
+        }
+        return sb.append('\n').toString();
+    }
+
+    private static void checkCount(int n) {
+        if (n < 1 || n > MAX_PER_REQUEST) {
+            throw new IllegalArgumentException("Count must be in 1.." + MAX_PER_REQUEST);
+        }
+    }
+
+    // First subtree whose running total exceeds k
+    private int subtreeOf(long k) {
+        int lo = 0;
+        int hi = totals.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (totals[mid] > k) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    private long start(int subtree) {
+        return subtree == 0 ? 0 : totals[subtree - 1];
+    }
+
+    // ----------------- Building -----------------
+
+    /**
+     * Enumerates the solutions below the prefix and records the subtree
+     * counts depth levels down. Throws IllegalArgumentException for an
+     * invalid prefix, a nodeLimit above {@value #MAX_NODE_LIMIT} or a
+     * sub-space that needs more than nodeLimit nodes, and stops with
+     * CancellationException if the building thread is interrupted.
+     */
+    public static SolutionIndex build(Space space, int[] prefix, int depth, long nodeLimit) {
+        long start = System.nanoTime();
+        buildCost(space, prefix, depth, nodeLimit);
+
+        Walker walker = new Walker(space);
+        walker.reset(prefix);
+        walker.limit = nodeLimit;
+        Table table = new Table(depth);
+        walker.index(walker.base, depth, table);
+        if (walker.limitReached) {
+            throw new IllegalArgumentException("The sub-space below prefix " + Arrays.toString(prefix)
+                    + " needs more than nodeLimit " + nodeLimit + " nodes; fix more cells in the prefix");
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000L;
+        return new SolutionIndex(space, prefix.clone(), depth, Arrays.copyOf(table.paths, table.count * depth),
+                Arrays.copyOf(table.totals, table.count), walker.nodes, millis);
+    }
+
+    /**
+     * Checks a build's parameters as {@link #build} does and returns the
+     * nodes it is expected to visit: a Knuth estimate of the sub-space,
+     * capped by nodeLimit.
+     */
+    public static double buildCost(Space space, int[] prefix, int depth, long nodeLimit) {
+        if (nodeLimit < 1 || nodeLimit > MAX_NODE_LIMIT) {
+            throw new IllegalArgumentException("nodeLimit must be in 1.." + MAX_NODE_LIMIT);
+        }
+        Walker walker = new Walker(space);
+        walker.reset(prefix);
+        int remaining = space.topology.cellCount - walker.base;
+        if (depth < 1 || depth > Math.min(MAX_DEPTH, remaining)) {
+            throw new IllegalArgumentException("depth must be in 1.." + Math.min(MAX_DEPTH, remaining));
+        }
+        SearchTreeEstimator.Estimate estimate = space.estimator.estimateBelow(prefix, ESTIMATE_PROBES, 0L);
+        if (estimate.treeLow() > nodeLimit) {
+            throw new IllegalArgumentException(String.format(Locale.ROOT,
+                    "The sub-space below prefix %s has about %.2e nodes, more than nodeLimit %d; "
+                            + "fix more cells in the prefix", Arrays.toString(prefix), estimate.treeNodes, nodeLimit));
+        }
+        return Math.min(estimate.treeNodes, nodeLimit);
+    }
+
+    /**
+     * Growing arrays of subtree paths and running totals.
+     */
+    private static final class Table {
+        final int depth;
+        byte[] paths;
+        long[] totals = new long[1024];
+        int count;
+
+        Table(int depth) {
+            this.depth = depth;
+            this.paths = new byte[1024 * depth];
+        }
+
+        void add(int[] grid, int[] fillOrder, int from, long solutions) {
+            if (count == MAX_SUBTREES) {
+                throw new IllegalArgumentException("depth " + depth + " gives more than " + MAX_SUBTREES
+                        + " subtrees; use a smaller depth");
+            }
+            if (count == totals.length) {
+                totals = Arrays.copyOf(totals, count * 2);
+                paths = Arrays.copyOf(paths, count * 2 * depth);
+            }
+            for (int d = 0; d < depth; d++) paths[count * depth + d] = (byte) grid[fillOrder[from + d]];
+            totals[count] = (count == 0 ? 0 : totals[count - 1]) + solutions;
+            count++;
+        }
+    }
+
+    private interface Visitor {
+        /** Called with each solution (live grid); false stops the walk. */
+        boolean solution(int[] grid);
+    }
+
+    /**
+     * Board state for one build or lookup, with the solvers' checks: C1,
+     * C2 on solve5x5, and C3 once the grid is complete.
+     */
+    private static final class Walker {
+        final Space space;
+        final int cellCount;
+        final int[] fillOrder;
+        final int[][] orthogonalNeighbors;
+        final int[][] diagonalNeighbors;
+        final int[] grid;
+        final boolean[] used;
+        int base;
+        long nodes;
+        long limit = Long.MAX_VALUE;
+        boolean limitReached;
+
+        Walker(Space space) {
+            this.space = space;
+            this.cellCount = space.topology.cellCount;
+            this.fillOrder = space.topology.fillOrder;
+            this.orthogonalNeighbors = space.topology.orthogonalNeighbors;
+            this.diagonalNeighbors = space.diagonal ? space.topology.diagonalNeighbors : null;
+            this.grid = new int[cellCount];
+            this.used = new boolean[cellCount + 1];
+        }
+
+        // Fixed cell and prefix; rejects a prefix the solver would never reach
+        void reset(int[] prefix) {
+            Arrays.fill(grid, 0);
+            Arrays.fill(used, false);
+            if (space.fixedIndex >= 0) {
+                place(space.fixedIndex, space.fixedValue);
+            }
+            if (space.startPos + prefix.length > cellCount) {
+                throw new IllegalArgumentException("Prefix longer than the " + (cellCount - space.startPos)
+                        + " free cells");
+            }
+            for (int i = 0; i < prefix.length; i++) {
+                int idx = fillOrder[space.startPos + i];
+                int v = prefix[i];
+                if (v < 1 || v > cellCount || used[v] || !allowed(idx, v)) {
+                    throw new IllegalArgumentException("Prefix value " + v + " at position " + (i + 1)
+                            + " breaks the puzzle's rules");
+                }
+                place(idx, v);
+            }
+            base = space.startPos + prefix.length;
+        }
+
+        void resetTo(int[] prefix, byte[] paths, int subtree, int depth) {
+            reset(prefix);
+            for (int d = 0; d < depth; d++) place(fillOrder[base + d], paths[subtree * depth + d]);
+        }
+
+        // Rejects a grid that is not a solution extending the prefix
+        void check(int[] prefix, int[] solution) {
+            if (solution.length != cellCount) {
+                throw new IllegalArgumentException("A grid needs " + cellCount + " values");
+            }
+            reset(prefix);
+            for (int pos = 0; pos < base; pos++) {
+                int idx = fillOrder[pos];
+                if (solution[idx] != grid[idx]) {
+                    throw new IllegalArgumentException("Grid does not extend prefix " + Arrays.toString(prefix));
+                }
+            }
+            for (int pos = base; pos < cellCount; pos++) {
+                int idx = fillOrder[pos];
+                int v = solution[idx];
+                if (v < 1 || v > cellCount || used[v] || !allowed(idx, v)) {
+                    throw new IllegalArgumentException("Grid is not a solution");
+                }
+                place(idx, v);
+            }
+            if (!complete()) {
+                throw new IllegalArgumentException("Grid is not a solution");
+            }
+        }
+
+        // Nodes above the table depth, recording the subtrees at that depth
+        long index(int pos, int depth, Table table) {
+            if (pos - base == depth) {
+                long solutions = count(pos);
+                if (solutions > 0 && !limitReached) table.add(grid, fillOrder, base, solutions);
+                return solutions;
+            }
+            if (nodes >= limit) {
+                limitReached = true;
+                return 0;
+            }
+            if ((++nodes & SearchTelemetry.SAMPLE_MASK) == 0) SearchTelemetry.checkCancelled();
+            long solutions = 0;
+            int idx = fillOrder[pos];
+            for (int v = 1; v <= cellCount; v++) {
+                if (used[v] || !allowed(idx, v)) continue;
+                place(idx, v);
+                solutions += index(pos + 1, depth, table);
+                unplace(idx, v);
+                if (limitReached) break;
+            }
+            return solutions;
+        }
+
+        long count(int pos) {
+            if (nodes >= limit) {
+                limitReached = true;
+                return 0;
+            }
+            if ((++nodes & SearchTelemetry.SAMPLE_MASK) == 0) SearchTelemetry.checkCancelled();
+            if (pos == cellCount) {
+                return complete() ? 1 : 0;
+            }
+            long solutions = 0;
+            int idx = fillOrder[pos];
+            for (int v = 1; v <= cellCount; v++) {
+                if (used[v] || !allowed(idx, v)) continue;
+                place(idx, v);
+                solutions += count(pos + 1);
+                unplace(idx, v);
+                if (limitReached) break;
+            }
+            return solutions;
+        }
+
+        // Solutions below pos in order; false once the visitor stops
+        boolean visit(int pos, Visitor visitor) {
+            if (pos == cellCount) {
+                return !complete() || visitor.solution(grid);
+            }
+            int idx = fillOrder[pos];
+            for (int v = 1; v <= cellCount; v++) {
+                if (used[v] || !allowed(idx, v)) continue;
+                place(idx, v);
+                boolean more = visit(pos + 1, visitor);
+                unplace(idx, v);
+                if (!more) return false;
+            }
+            return true;
+        }
+
+        private void place(int idx, int v) {
+            grid[idx] = v;
+            used[v] = true;
+        }
+
+        private void unplace(int idx, int v) {
+            grid[idx] = 0;
+            used[v] = false;
+        }
+
+        private boolean allowed(int idx, int v) {
+            for (int nb : orthogonalNeighbors[idx]) {
+                int nv = grid[nb];
+                if (nv != 0 && Math.abs(nv - v) == 1) return false;
+            }
+            if (diagonalNeighbors != null) {
+                for (int nb : diagonalNeighbors[idx]) {
+                    int nv = grid[nb];
+                    if (nv != 0 && Math.abs(nv - v) == 2) return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean complete() {
+            int sum = 0;
+            for (int c : space.parityCells) sum += grid[c];
+            return (sum & 1) == 0;
+        }
+    }
+
+    // ----------------- Catalog -----------------
+
+    /**
+     * Indexes by canonical query, kept in memory and, when dir is set, in
+     * one file each under dir. Concurrent requests for an index share one
+     * build; a failed build is forgotten so a larger budget can retry it.
+     */
+    public static final class Catalog {
+        private static final int MAX_CACHED = 16;
+
+        private final Path dir;
+        private final ConcurrentHashMap<String, CompletableFuture<SolutionIndex>> indexes = new ConcurrentHashMap<>();
+
+        /** @param dir directory of index files, or null to keep indexes in memory only */
+        public Catalog(Path dir) {
+            this.dir = dir;
+        }
+
+        /**
+         * The index from memory or its file, without building it; null if
+         * it has to be built (or another request is still building it).
+         */
+        public SolutionIndex find(Space space, int[] prefix, int depth) {
+            String query = query(space, prefix, depth);
+            CompletableFuture<SolutionIndex> known = indexes.get(query);
+            if (known != null) {
+                return known.isDone() && !known.isCompletedExceptionally() ? known.join() : null;
+            }
+            SolutionIndex index = load(space, prefix, depth);
+            if (index != null && indexes.putIfAbsent(query, CompletableFuture.completedFuture(index)) == null) {
+                evict(query);
+            }
+            return index;
+        }
+
+        /** The index from memory or its file, building it if neither has it. */
+        public SolutionIndex get(Space space, int[] prefix, int depth, long nodeLimit) {
+            String query = query(space, prefix, depth);
+            CompletableFuture<SolutionIndex> mine = new CompletableFuture<>();
+            CompletableFuture<SolutionIndex> running = indexes.putIfAbsent(query, mine);
+            if (running != null) {
+                try {
+                    return running.join();
+                } catch (CompletionException e) {
+                    throw e.getCause() instanceof RuntimeException r ? r : e;
+                }
+            }
+            try {
+                SolutionIndex index = load(space, prefix, depth);
+                if (index == null) {
+                    index = build(space, prefix, depth, nodeLimit);
+                    System.out.println("Solution index: " + index.total() + " solutions in "
+                            + index.subtrees() + " subtrees for " + query + " (" + index.nodes + " nodes, "
+                            + index.millis + " ms)");
+                    save(index);
+                }
+                mine.complete(index);
+                evict(query);
+                return index;
+            } catch (RuntimeException e) {
+                indexes.remove(query, mine);
+                mine.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        // Drops finished indexes beyond MAX_CACHED; their files remain
+        private void evict(String keep) {
+            for (String key : indexes.keySet()) {
+                if (indexes.size() <= MAX_CACHED) return;
+                CompletableFuture<SolutionIndex> f = indexes.get(key);
+                if (!key.equals(keep) && f != null && f.isDone()) indexes.remove(key, f);
+            }
+        }
+
+        private Path file(String query) {
+            return dir.resolve(HexFormat.of().formatHex(ResultStore.sha256(query)) + ".idx");
+        }
+
+        private SolutionIndex load(Space space, int[] prefix, int depth) {
+            if (dir == null) return null;
+            String query = query(space, prefix, depth);
+            Path file = file(query);
+            if (!Files.exists(file)) return null;
+            CRC32 crc = new CRC32();
+            try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                    new BufferedInputStream(Files.newInputStream(file), 1 << 16), crc))) {
+                byte[] magic = new byte[MAGIC.length];
+                in.readFully(magic);
+                if (!Arrays.equals(magic, MAGIC) || !in.readUTF().equals(query) || in.readUnsignedByte() != depth) {
+                    throw new IOException("not an index for " + query);
+                }
+                long nodes = in.readLong();
+                long millis = in.readLong();
+                int count = in.readInt();
+                if (count < 0 || count > MAX_SUBTREES) {
+                    throw new IOException("bad subtree count " + count);
+                }
+                byte[] paths = new byte[count * depth];
+                long[] totals = new long[count];
+                for (int i = 0; i < count; i++) {
+                    in.readFully(paths, i * depth, depth);
+                    totals[i] = in.readLong();
+                }
+                int expected = (int) crc.getValue();
+                if (in.readInt() != expected) {
+                    throw new IOException("checksum mismatch");
+                }
+                return new SolutionIndex(space, prefix.clone(), depth, paths, totals, nodes, millis);
+            } catch (IOException e) {
+                System.out.println("Solution index: rebuilding " + file + ": " + e.getMessage());
+                return null;
+            }
+        }
+
+        // Written to a temporary file and moved into place, so readers never see a partial index
+        private void save(SolutionIndex index) {
+            if (dir == null) return;
+            Path file = file(index.query);
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try {
+                Files.createDirectories(dir);
+                CRC32 crc = new CRC32();
+                try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16), crc))) {
+                    out.write(MAGIC);
+                    out.writeUTF(index.query);
+                    out.writeByte(index.depth);
+                    out.writeLong(index.nodes);
+                    out.writeLong(index.millis);
+                    out.writeInt(index.totals.length);
+                    for (int i = 0; i < index.totals.length; i++) {
+                        out.write(index.paths, i * index.depth, index.depth);
+                        out.writeLong(index.totals[i]);
+                    }
+                    out.flush();
+                    out.writeInt((int) crc.getValue());
+                }
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                System.out.println("Solution index: cannot write " + file + ": " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.codeoff;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event spanning one solver run, from the start of the search to its result.
+ */
+@Name("com.codeoff.Solve")
+@Label("Solve")
+@Category({"Codeoff", "Solver"})
+@Description("One complete solver run")
+@StackTrace(false)
+public class SolveEvent extends Event {
+
+    @Label("Puzzle")
+    String puzzle;
+
+    @Label("Value Order")
+    String valueOrder;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Solved")
+    @Description("Whether a solution was found (for counters: whether any solution was counted)")
+    boolean solved;
+
+    @Label("Node Limit Reached")
+    boolean limitReached;
+}
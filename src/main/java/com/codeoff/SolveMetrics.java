@@ -0,0 +1,31 @@
+package com.codeoff;
+
+/**
+ * Search statistics reported alongside a result. For the local engine
+ * "nodes" counts swap moves; stored marks a result served from the
+ * {@link ResultStore} (the statistics are those of the original run).
+ */
+public class SolveMetrics {
+
+    public final String engine;
+    public final String valueOrder;
+    public final long nodes;
+    public final long millis;
+    public final boolean stored;
+
+    public SolveMetrics(String engine, String valueOrder, long nodes, long millis) {
+        this(engine, valueOrder, nodes, millis, false);
+    }
+
+    public SolveMetrics(String engine, String valueOrder, long nodes, long millis, boolean stored) {
+        this.engine = engine;
+        this.valueOrder = valueOrder;
+        this.nodes = nodes;
+        this.millis = millis;
+        this.stored = stored;
+    }
+
+    public static SolveMetrics since(long startNanos, ValueOrder order, long nodes) {
+        return new SolveMetrics(PuzzleSpec.Engine.BACKTRACK.id, order.id, nodes, (System.nanoTime() - startNanos) / 1_000_000L);
+    }
+}
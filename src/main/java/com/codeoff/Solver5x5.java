@@ -1,12 +1,11 @@
 package com.codeoff;
 
-import java.util.Arrays;
-
 /**
  * Backtracking solver for the 5x5 grid puzzle with the following constraints:
  *
  * - Fixed Seed:
- *   Center cell (row 3, column 3) must be 13.
+ *   Center cell (row 3, column 3) must be 13
+ *   (any cell and value can be chosen through a {@link PuzzleSpec}).
  *
  * - C1 (Orthogonal):
  *   No two orthogonally adjacent cells (up, down, left, right)
@@ -28,15 +27,11 @@ public class Solver5x5 {
     private static final int SIZE = 5;
     private static final int CELL_COUNT = SIZE * SIZE;
 
-    // Fixed center index and value (row 3, col 3 -> 0-based index 12)
-    private static final int CENTER_INDEX = 2 * SIZE + 2;
-    private static final int CENTER_VALUE = 13;
-
     // Prime-numbered cell coordinates (1-based as per problem statement)
     // Hint from assignment:
     // Grid(1,2), Grid(1,4), Grid(2,1), Grid(2,3), Grid(3,2),
     // Grid(3,4), Grid(4,1), Grid(4,3), Grid(5,2), Grid(5,4)
-    private static final int[] PRIME_CELL_INDICES = toZeroBasedIndices(new int[][]{
+    static final int[] PRIME_CELL_INDICES = toZeroBasedIndices(new int[][]{
             {1, 2}, {1, 4},
             {2, 1}, {2, 3},
             {3, 2}, {3, 4},
@@ -44,17 +39,86 @@ public class Solver5x5 {
             {5, 2}, {5, 4}
     });
 
-    // Adjacency lists (by index 0..24)
+    // Fixed seed index and value (default: row 3, col 3 -> 0-based index 12 = 13)
+    private final int fixedIndex;
+    private final int fixedValue;
+
+    // Adjacency lists (by index 0..24), shared across instances
     private final int[][] orthogonalNeighbors;
     private final int[][] diagonalNeighbors;
 
-    // Order in which cells are filled during backtracking
-    private final Integer[] fillOrder;
+    // Order in which cells are filled during backtracking (fixed cell first)
+    private final int[] fillOrder;
+
+    // Search statistics and optional node budget
+    private long nodesVisited;
+    private long nodeLimit;
+
+    // Value ordering strategy and per-depth candidate buffers
+    private final ValueOrder valueOrder;
+    private final ValueOrder.Context orderContext;
+    private final int[][] candidates;
+    private final int[] candidateCounts;
+
+    // JFR solve/progress/backtrack events for this search
+    private final SearchTelemetry telemetry = new SearchTelemetry("solve5x5");
 
     public Solver5x5() {
-        this.orthogonalNeighbors = buildOrthogonalNeighbors();
-        this.diagonalNeighbors = buildDiagonalNeighbors();
-        this.fillOrder = buildFillOrder();
+        this(ValueOrder.ASCENDING, 0L);
+    }
+
+    /**
+     * @param valueOrder order in which values are tried for each cell
+     * @param seed       seed for randomized orderings
+     */
+    public Solver5x5(ValueOrder valueOrder, long seed) {
+        this(PuzzleSpec.defaults(PuzzleSpec.Type.BASE_5X5).withSearch(valueOrder, seed, Long.MAX_VALUE));
+    }
+
+    /**
+     * Solver for a parameterized variant (fixed cell and value, value order, node limit).
+     */
+    public Solver5x5(PuzzleSpec spec) {
+        if (spec.type != PuzzleSpec.Type.BASE_5X5) {
+            throw new IllegalArgumentException("Solver5x5 cannot solve " + spec.type.id);
+        }
+        BoardTopology topology = spec.topology();
+        this.fixedIndex = spec.fixedIndex;
+        this.fixedValue = spec.fixedValue;
+        this.nodeLimit = spec.nodeLimit;
+        this.orthogonalNeighbors = topology.orthogonalNeighbors;
+        this.diagonalNeighbors = topology.diagonalNeighbors;
+        this.fillOrder = topology.fillOrder;
+        this.valueOrder = spec.valueOrder;
+        this.orderContext = new ValueOrder.Context(topology, CELL_COUNT, PRIME_CELL_INDICES, spec.seed);
+        this.candidates = new int[CELL_COUNT][CELL_COUNT];
+        this.candidateCounts = new int[CELL_COUNT];
+        telemetry.track(candidates, candidateCounts, 1);
+    }
+
+    /**
+     * Caps the number of search nodes; once reached the search stops and
+     * solve() returns null with {@link #isNodeLimitReached()} set.
+     */
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    public long getNodesVisited() {
+        return nodesVisited;
+    }
+
+    public boolean isNodeLimitReached() {
+        return nodesVisited >= nodeLimit;
+    }
+
+    public ValueOrder getValueOrder() {
+        return valueOrder;
+    }
+
+    /** Publishes live progress of the next search to the given counters. */
+    public void setProgress(SearchProgress progress) {
+        telemetry.publishTo(progress);
     }
 
     /**
@@ -66,14 +130,15 @@ public class Solver5x5 {
         int[] grid = new int[CELL_COUNT];
         boolean[] used = new boolean[26]; // values 1..25; index 0 unused
 
-        // Fix center value
-        grid[CENTER_INDEX] = CENTER_VALUE;
-        used[CENTER_VALUE] = true;
+        // Fix seed value
+        grid[fixedIndex] = fixedValue;
+        used[fixedValue] = true;
 
-        if (backtrack(grid, used, 1 /* start from second in fillOrder */)) {
-            return grid;
-        }
-        return null;
+        telemetry.begin();
+        boolean solved = backtrack(grid, used, 1 /* start from second in fillOrder */);
+        telemetry.end(valueOrder, nodesVisited, solved, isNodeLimitReached());
+
+        return solved ? grid : null;
     }
 
     /**
@@ -98,8 +163,8 @@ public class Solver5x5 {
             seen[value] = true;
         }
 
-        // Center constraint
-        if (grid[CENTER_INDEX] != CENTER_VALUE) {
+        // Fixed seed constraint
+        if (grid[fixedIndex] != fixedValue) {
             return false;
         }
 
@@ -137,6 +202,13 @@ public class Solver5x5 {
     // ----------------------
 
     private boolean backtrack(int[] grid, boolean[] used, int pos) {
+        if (nodesVisited >= nodeLimit) return false;
+        nodesVisited++;
+        if ((nodesVisited & SearchTelemetry.SAMPLE_MASK) == 0) {
+            telemetry.sample(nodesVisited, pos, grid, fillOrder);
+            SearchTelemetry.checkCancelled();
+        }
+
         if (pos == fillOrder.length) {
             // All cells assigned; check prime-cell parity (C3)
             int primeSum = 0;
@@ -147,11 +219,12 @@ public class Solver5x5 {
         }
 
         int idx = fillOrder[pos];
+        int[] values = candidates[pos];
+        int count = valueOrder.order(orderContext, idx, grid, used, values);
+        candidateCounts[pos] = count;
 
-        for (int value = 1; value <= 25; value++) {
-            if (used[value]) {
-                continue;
-            }
+        for (int i = 0; i < count; i++) {
+            int value = values[i];
 
             if (!respectsLocalConstraints(grid, idx, value)) {
                 continue;
@@ -167,6 +240,12 @@ public class Solver5x5 {
             // undo
             grid[idx] = 0;
             used[value] = false;
+
+            if (pos <= SearchTelemetry.BACKTRACK_DEPTH) {
+                telemetry.backtracked(pos, value, nodesVisited);
+            }
+
+            if (nodesVisited >= nodeLimit) return false;
         }
 
         return false;
@@ -197,89 +276,6 @@ public class Solver5x5 {
         return true;
     }
 
-    // ----------------------
-    // Helper: adjacency and fill order
-    // ----------------------
-
-    private int[][] buildOrthogonalNeighbors() {
-        int[][] neighbors = new int[CELL_COUNT][];
-        for (int r = 0; r < SIZE; r++) {
-            for (int c = 0; c < SIZE; c++) {
-                int idx = r * SIZE + c;
-                neighbors[idx] = computeOrthogonalNeighbors(r, c);
-            }
-        }
-        return neighbors;
-    }
-
-    private int[][] buildDiagonalNeighbors() {
-        int[][] neighbors = new int[CELL_COUNT][];
-        for (int r = 0; r < SIZE; r++) {
-            for (int c = 0; c < SIZE; c++) {
-                int idx = r * SIZE + c;
-                neighbors[idx] = computeDiagonalNeighbors(r, c);
-            }
-        }
-        return neighbors;
-    }
-
-    private int[] computeOrthogonalNeighbors(int r, int c) {
-        int[][] deltas = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
-        return collectNeighbors(r, c, deltas);
-    }
-
-    private int[] computeDiagonalNeighbors(int r, int c) {
-        int[][] deltas = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
-        return collectNeighbors(r, c, deltas);
-    }
-
-    private int[] collectNeighbors(int r, int c, int[][] deltas) {
-        int[] temp = new int[4];
-        int count = 0;
-
-        for (int[] d : deltas) {
-            int nr = r + d[0];
-            int nc = c + d[1];
-            if (nr >= 0 && nr < SIZE && nc >= 0 && nc < SIZE) {
-                temp[count++] = nr * SIZE + nc;
-            }
-        }
-
-        return Arrays.copyOf(temp, count);
-    }
-
-    /**
-     * Build an order of cell indices for backtracking:
-     *  - First: the fixed center cell
-     *  - Then: remaining cells sorted by (orthogonal + diagonal) degree descending,
-     *          so heavily constrained cells are filled early.
-     */
-    private Integer[] buildFillOrder() {
-        Integer[] order = new Integer[CELL_COUNT];
-        boolean[] used = new boolean[CELL_COUNT];
-
-        // Center first
-        order[0] = CENTER_INDEX;
-        used[CENTER_INDEX] = true;
-
-        // Collect remaining indices
-        int pos = 1;
-        for (int i = 0; i < CELL_COUNT; i++) {
-            if (!used[i]) {
-                order[pos++] = i;
-            }
-        }
-
-        // Sort the tail (from index 1 onwards) by descending degree
-        Arrays.sort(order, 1, CELL_COUNT, (a, b) -> {
-            int degA = orthogonalNeighbors[a].length + diagonalNeighbors[a].length;
-            int degB = orthogonalNeighbors[b].length + diagonalNeighbors[b].length;
-            return Integer.compare(degB, degA); // descending
-        });
-
-        return order;
-    }
-
     // ----------------------
     // Helper: prime-cell indices
     // ----------------------
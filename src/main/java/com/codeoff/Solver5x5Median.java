@@ -7,10 +7,6 @@ public class Solver5x5Median {
     private static final int SIZE = 5;
     private static final int CELL_COUNT = SIZE * SIZE;
 
-    // From problem 1
-    private static final int CENTER_INDEX = 12;
-    private static final int CENTER_VALUE = 13;
-
     private static final int[] PRIME_CELL_INDICES = toZeroBasedIndices(new int[][]{
             {1,2}, {1,4},
             {2,1}, {2,3},
@@ -19,43 +15,143 @@ public class Solver5x5Median {
             {5,2}, {5,4}
     });
 
+    // Fixed seed (default: center = 13, as in problem 1) and C4 median target (default 14)
+    private final int fixedIndex;
+    private final int fixedValue;
+    private final int medianTarget;
+
+    // Shared adjacency and fill order (center first, then descending degree)
     private final int[][] orthogonalNeighbors;
     private final int[][] diagonalNeighbors;
-    private final Integer[] fillOrder;
+    private final int[] fillOrder;
+
+    // Search statistics and optional node budget
+    private long nodesVisited;
+    private long nodeLimit;
+
+    // Value ordering strategy and per-depth candidate buffers
+    private final ValueOrder valueOrder;
+    private final ValueOrder.Context orderContext;
+    private final int[][] candidates;
+    private final int[] candidateCounts;
+
+    // JFR solve/progress/backtrack events for this search
+    private final SearchTelemetry telemetry = new SearchTelemetry("solveMedian");
 
     public Solver5x5Median() {
-        orthogonalNeighbors = buildOrthogonalNeighbors();
-        diagonalNeighbors = buildDiagonalNeighbors();
-        fillOrder = buildFillOrder();
+        this(ValueOrder.ASCENDING, 0L);
+    }
+
+    public Solver5x5Median(ValueOrder valueOrder, long seed) {
+        this(PuzzleSpec.defaults(PuzzleSpec.Type.MEDIAN_5X5).withSearch(valueOrder, seed, Long.MAX_VALUE));
+    }
+
+    public Solver5x5Median(PuzzleSpec spec) {
+        if (spec.type != PuzzleSpec.Type.MEDIAN_5X5) {
+            throw new IllegalArgumentException("Solver5x5Median cannot solve " + spec.type.id);
+        }
+        BoardTopology topology = spec.topology();
+        fixedIndex = spec.fixedIndex;
+        fixedValue = spec.fixedValue;
+        medianTarget = spec.medianTarget;
+        nodeLimit = spec.nodeLimit;
+        orthogonalNeighbors = topology.orthogonalNeighbors;
+        diagonalNeighbors = topology.diagonalNeighbors;
+        fillOrder = topology.fillOrder;
+        valueOrder = spec.valueOrder;
+        orderContext = new ValueOrder.Context(topology, CELL_COUNT, PRIME_CELL_INDICES, spec.seed);
+        candidates = new int[CELL_COUNT][CELL_COUNT];
+        candidateCounts = new int[CELL_COUNT];
+        telemetry.track(candidates, candidateCounts, 1);
+    }
+
+    /**
+     * Caps the number of search nodes; once reached the search stops and
+     * solve() returns null with {@link #isNodeLimitReached()} set.
+     */
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    public long getNodesVisited() {
+        return nodesVisited;
+    }
+
+    public boolean isNodeLimitReached() {
+        return nodesVisited >= nodeLimit;
+    }
+
+    public ValueOrder getValueOrder() {
+        return valueOrder;
+    }
+
+    /** Publishes live progress of the next search to the given counters. */
+    public void setProgress(SearchProgress progress) {
+        telemetry.publishTo(progress);
     }
 
     public Result solveAndGetResult() {
         int [] g = solve();
-        return new Result(g, g[24]);
+        return g == null ? null : new Result(g, g[24]);
     }
 
     public int[] solve() {
         int[] grid = new int[CELL_COUNT];
         boolean[] used = new boolean[26];
 
-        grid[CENTER_INDEX] = CENTER_VALUE;
-        used[CENTER_VALUE] = true;
+        grid[fixedIndex] = fixedValue;
+        used[fixedValue] = true;
 
-        if (backtrack(grid, used, 1))
-            return grid;
+        telemetry.begin();
+        boolean solved = backtrack(grid, used, 1);
+        telemetry.end(valueOrder, nodesVisited, solved, isNodeLimitReached());
 
-        return null;
+        return solved ? grid : null;
+    }
+
+    /**
+     * Full validator for a completed grid: permutation, seed, C1, C2, C3 and C4.
+     */
+    public boolean isValidSolution(int[] grid) {
+        if (grid == null || grid.length != CELL_COUNT) return false;
+
+        boolean[] seen = new boolean[26];
+        for (int v : grid) {
+            if (v < 1 || v > 25 || seen[v]) return false;
+            seen[v] = true;
+        }
+
+        if (grid[fixedIndex] != fixedValue) return false;
+
+        for (int idx = 0; idx < CELL_COUNT; idx++) {
+            for (int n : orthogonalNeighbors[idx])
+                if (Math.abs(grid[n] - grid[idx]) == 1) return false;
+            for (int n : diagonalNeighbors[idx])
+                if (Math.abs(grid[n] - grid[idx]) == 2) return false;
+        }
+
+        return validateFinal(grid);
     }
 
     private boolean backtrack(int[] grid, boolean[] used, int pos) {
+        if (nodesVisited >= nodeLimit) return false;
+        nodesVisited++;
+        if ((nodesVisited & SearchTelemetry.SAMPLE_MASK) == 0) {
+            telemetry.sample(nodesVisited, pos, grid, fillOrder);
+            SearchTelemetry.checkCancelled();
+        }
+
         if (pos == fillOrder.length) {
             return validateFinal(grid);
         }
 
         int idx = fillOrder[pos];
+        int[] values = candidates[pos];
+        int count = valueOrder.order(orderContext, idx, grid, used, values);
+        candidateCounts[pos] = count;
 
-        for (int v = 1; v <= 25; v++) {
-            if (used[v]) continue;
+        for (int i = 0; i < count; i++) {
+            int v = values[i];
 
             if (!localOK(grid, idx, v)) continue;
 
@@ -67,6 +163,11 @@ public class Solver5x5Median {
 
             grid[idx] = 0;
             used[v] = false;
+
+            if (pos <= SearchTelemetry.BACKTRACK_DEPTH)
+                telemetry.backtracked(pos, v, nodesVisited);
+
+            if (nodesVisited >= nodeLimit) return false;
         }
 
         return false;
@@ -81,10 +182,10 @@ public class Solver5x5Median {
             primeSum += grid[i];
         if (primeSum % 2 != 0) return false;
 
-        // C4: top-row median must be 14
+        // C4: top-row median must be the target (14 by default)
         int[] row1 = Arrays.copyOfRange(grid, 0, 5);
         Arrays.sort(row1);
-        if (row1[2] != 14)
+        if (row1[2] != medianTarget)
             return false;
 
         return true;
@@ -109,58 +210,6 @@ public class Solver5x5Median {
         return true;
     }
 
-    // --- adjacency helpers (same as previous project) ---
-
-    private int[][] buildOrthogonalNeighbors() {
-        int[][] result = new int[CELL_COUNT][];
-        for (int r = 0; r < SIZE; r++)
-            for (int c = 0; c < SIZE; c++)
-                result[r*SIZE+c] = collect(r,c,new int[][]{{-1,0},{1,0},{0,-1},{0,1}});
-        return result;
-    }
-
-    private int[][] buildDiagonalNeighbors() {
-        int[][] result = new int[CELL_COUNT][];
-        for (int r = 0; r < SIZE; r++)
-            for (int c = 0; c < SIZE; c++)
-                result[r*SIZE+c] = collect(r,c,new int[][]{{-1,-1},{-1,1},{1,-1},{1,1}});
-        return result;
-    }
-
-    private int[] collect(int r, int c, int[][] deltas) {
-        int[] tmp = new int[4];
-        int count = 0;
-
-        for (int[] d : deltas) {
-            int nr = r + d[0];
-            int nc = c + d[1];
-            if (nr>=0 && nr<SIZE && nc>=0 && nc<SIZE)
-                tmp[count++] = nr*SIZE + nc;
-        }
-        return Arrays.copyOf(tmp, count);
-    }
-
-    // Fill center first, then descending degree
-    private Integer[] buildFillOrder() {
-        Integer[] order = new Integer[25];
-        boolean[] used = new boolean[25];
-
-        order[0] = CENTER_INDEX;
-        used[CENTER_INDEX] = true;
-
-        int pos=1;
-        for(int i=0;i<25;i++)
-            if(!used[i]) order[pos++] = i;
-
-        Arrays.sort(order,1,25,(a,b) -> {
-            int da = orthogonalNeighbors[a].length + diagonalNeighbors[a].length;
-            int db = orthogonalNeighbors[b].length + diagonalNeighbors[b].length;
-            return Integer.compare(db, da);
-        });
-
-        return order;
-    }
-
     private static int[] toZeroBasedIndices(int[][] coords) {
         int[] arr = new int[coords.length];
         for (int i=0;i<coords.length;i++)
@@ -168,9 +217,3 @@ public class Solver5x5Median {
         return arr;
     }
 }
-
-class Result {
-    public final int[] grid;
-    public final int bottomRight;
-    public Result(int[] g, int br) { this.grid=g; this.bottomRight=br; }
-}
@@ -1,31 +1,101 @@
 package com.codeoff;
 
-import java.util.Arrays;
-
 /**
  * Solver for the 6x6 grid with:
  *
  * - Fixed Seed: (row 1, col 1) = 1
  * - C1 (Orthogonal): No orthogonally adjacent cells contain consecutive integers.
  * - C5 (Rook): Numbers {1, 12, 24, 36} are all in distinct rows and distinct columns.
+ *
+ * The seed and the rook set can be changed through a {@link PuzzleSpec}.
  */
 public class Solver6x6 {
 
     private static final int SIZE = 6;
     private static final int CELL_COUNT = SIZE * SIZE;
 
-    private static final int FIXED_INDEX = 0;   // (0,0) in 0-based
-    private static final int FIXED_VALUE = 1;
+    // Fixed seed, default (0,0) in 0-based = 1
+    private final int fixedIndex;
+    private final int fixedValue;
 
-    // Special rook set
-    private static final int[] ROOK_VALUES = {1, 12, 24, 36};
+    // Special rook set, default {1, 12, 24, 36}
+    private final int[] rookValues;
+    private final boolean[] isRook;
 
     private final int[][] orthogonalNeighbors;
-    private final Integer[] fillOrder;
+    private final int[] fillOrder;
+
+    // Search statistics and optional node budget
+    private long nodesVisited;
+    private long nodeLimit;
+
+    // Value ordering strategy and per-depth candidate buffers
+    private final ValueOrder valueOrder;
+    private final ValueOrder.Context orderContext;
+    private final int[][] candidates;
+    private final int[] candidateCounts;
+
+    // JFR solve/progress/backtrack events for this search
+    private final SearchTelemetry telemetry = new SearchTelemetry("solve6x6");
 
     public Solver6x6() {
-        this.orthogonalNeighbors = buildOrthogonalNeighbors();
-        this.fillOrder = buildFillOrder();
+        this(ValueOrder.ASCENDING, 0L);
+    }
+
+    /**
+     * @param valueOrder order in which values are tried for each cell
+     * @param seed       seed for randomized orderings
+     */
+    public Solver6x6(ValueOrder valueOrder, long seed) {
+        this(PuzzleSpec.defaults(PuzzleSpec.Type.ROOK_6X6).withSearch(valueOrder, seed, Long.MAX_VALUE));
+    }
+
+    /**
+     * Solver for a parameterized variant (fixed cell and value, rook set, value order, node limit).
+     */
+    public Solver6x6(PuzzleSpec spec) {
+        if (spec.type != PuzzleSpec.Type.ROOK_6X6) {
+            throw new IllegalArgumentException("Solver6x6 cannot solve " + spec.type.id);
+        }
+        BoardTopology topology = spec.topology();
+        this.fixedIndex = spec.fixedIndex;
+        this.fixedValue = spec.fixedValue;
+        this.rookValues = spec.rookValues();
+        this.isRook = new boolean[CELL_COUNT + 1];
+        for (int rv : rookValues) isRook[rv] = true;
+        this.nodeLimit = spec.nodeLimit;
+        this.orthogonalNeighbors = topology.orthogonalNeighbors;
+        this.fillOrder = topology.fillOrder;
+        this.valueOrder = spec.valueOrder;
+        this.orderContext = new ValueOrder.Context(topology, CELL_COUNT, new int[0], spec.seed);
+        this.candidates = new int[CELL_COUNT][CELL_COUNT];
+        this.candidateCounts = new int[CELL_COUNT];
+        telemetry.track(candidates, candidateCounts, 1);
+    }
+
+    /**
+     * Caps the number of search nodes; once reached the search stops and
+     * solve() returns null with {@link #isNodeLimitReached()} set.
+     */
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    public long getNodesVisited() {
+        return nodesVisited;
+    }
+
+    public boolean isNodeLimitReached() {
+        return nodesVisited >= nodeLimit;
+    }
+
+    public ValueOrder getValueOrder() {
+        return valueOrder;
+    }
+
+    /** Publishes live progress of the next search to the given counters. */
+    public void setProgress(SearchProgress progress) {
+        telemetry.publishTo(progress);
     }
 
     /**
@@ -37,18 +107,21 @@ public class Solver6x6 {
         boolean[] rookRows = new boolean[SIZE];
         boolean[] rookCols = new boolean[SIZE];
 
-        // Fixed seed at top-left
-        grid[FIXED_INDEX] = FIXED_VALUE;
-        used[FIXED_VALUE] = true;
+        // Fixed seed (top-left by default)
+        grid[fixedIndex] = fixedValue;
+        used[fixedValue] = true;
 
-        // Rook constraint: mark row/col occupied by value 1
-        rookRows[0] = true;
-        rookCols[0] = true;
-
-        if (backtrack(grid, used, rookRows, rookCols, 1)) {
-            return to2D(grid);
+        // Rook constraint: mark row/col occupied by the seed if it is a rook value (1 by default)
+        if (isRookValue(fixedValue)) {
+            rookRows[fixedIndex / SIZE] = true;
+            rookCols[fixedIndex % SIZE] = true;
         }
-        return null;
+
+        telemetry.begin();
+        boolean solved = backtrack(grid, used, rookRows, rookCols, 1);
+        telemetry.end(valueOrder, nodesVisited, solved, isNodeLimitReached());
+
+        return solved ? to2D(grid) : null;
     }
 
     /**
@@ -68,7 +141,7 @@ public class Solver6x6 {
         }
 
         // Fixed seed
-        if (grid[FIXED_INDEX] != FIXED_VALUE) {
+        if (grid[fixedIndex] != fixedValue) {
             return false;
         }
 
@@ -84,11 +157,11 @@ public class Solver6x6 {
         }
 
         // C5: rook rows/cols
-        int[] rookRowsSeen = new int[ROOK_VALUES.length];
-        int[] rookColsSeen = new int[ROOK_VALUES.length];
+        int[] rookRowsSeen = new int[rookValues.length];
+        int[] rookColsSeen = new int[rookValues.length];
 
-        for (int i = 0; i < ROOK_VALUES.length; i++) {
-            int value = ROOK_VALUES[i];
+        for (int i = 0; i < rookValues.length; i++) {
+            int value = rookValues[i];
             int pos = findValue(grid, value);
             if (pos < 0) return false;
             rookRowsSeen[i] = pos / SIZE;
@@ -125,6 +198,13 @@ public class Solver6x6 {
                               boolean[] rookCols,
                               int pos) {
 
+        if (nodesVisited >= nodeLimit) return false;
+        nodesVisited++;
+        if ((nodesVisited & SearchTelemetry.SAMPLE_MASK) == 0) {
+            telemetry.sample(nodesVisited, pos, grid, fillOrder);
+            SearchTelemetry.checkCancelled();
+        }
+
         if (pos == fillOrder.length) {
             return true; // all cells filled; final constraints already enforced locally
         }
@@ -133,8 +213,12 @@ public class Solver6x6 {
         int row = idx / SIZE;
         int col = idx % SIZE;
 
-        for (int value = 1; value <= 36; value++) {
-            if (used[value]) continue;
+        int[] values = candidates[pos];
+        int count = valueOrder.order(orderContext, idx, grid, used, values);
+        candidateCounts[pos] = count;
+
+        for (int i = 0; i < count; i++) {
+            int value = values[i];
 
             if (!respectsLocalConstraints(grid, idx, row, col, value, rookRows, rookCols)) {
                 continue;
@@ -160,6 +244,12 @@ public class Solver6x6 {
             }
             grid[idx] = 0;
             used[value] = false;
+
+            if (pos <= SearchTelemetry.BACKTRACK_DEPTH) {
+                telemetry.backtracked(pos, value, nodesVisited);
+            }
+
+            if (nodesVisited >= nodeLimit) return false;
         }
 
         return false;
@@ -191,68 +281,10 @@ public class Solver6x6 {
     }
 
     private boolean isRookValue(int v) {
-        for (int rv : ROOK_VALUES) {
-            if (rv == v) return true;
-        }
-        return false;
-    }
-
-    // ----------------- Helpers: adjacency & fill order -----------------
-
-    private int[][] buildOrthogonalNeighbors() {
-        int[][] neighbors = new int[CELL_COUNT][];
-        for (int r = 0; r < SIZE; r++) {
-            for (int c = 0; c < SIZE; c++) {
-                int idx = r * SIZE + c;
-                neighbors[idx] = computeOrthNeighbors(r, c);
-            }
-        }
-        return neighbors;
-    }
-
-    private int[] computeOrthNeighbors(int r, int c) {
-        int[][] deltas = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
-        int[] temp = new int[4];
-        int count = 0;
-
-        for (int[] d : deltas) {
-            int nr = r + d[0];
-            int nc = c + d[1];
-            if (nr >= 0 && nr < SIZE && nc >= 0 && nc < SIZE) {
-                temp[count++] = nr * SIZE + nc;
-            }
-        }
-
-        return Arrays.copyOf(temp, count);
+        return isRook[v];
     }
 
-    /**
-     * Fill order:
-     *  - First: fixed top-left cell (index 0).
-     *  - Then: remaining cells sorted by descending orthogonal degree.
-     */
-    private Integer[] buildFillOrder() {
-        Integer[] order = new Integer[CELL_COUNT];
-        boolean[] usedIndex = new boolean[CELL_COUNT];
-
-        order[0] = FIXED_INDEX;
-        usedIndex[FIXED_INDEX] = true;
-
-        int pos = 1;
-        for (int i = 0; i < CELL_COUNT; i++) {
-            if (!usedIndex[i]) {
-                order[pos++] = i;
-            }
-        }
-
-        Arrays.sort(order, 1, CELL_COUNT, (a, b) -> {
-            int da = orthogonalNeighbors[a].length;
-            int db = orthogonalNeighbors[b].length;
-            return Integer.compare(db, da); // descending
-        });
-
-        return order;
-    }
+    // ----------------- Helpers -----------------
 
     private int[][] to2D(int[] grid) {
         int[][] m = new int[SIZE][SIZE];
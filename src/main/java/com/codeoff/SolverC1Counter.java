@@ -1,7 +1,6 @@
 package com.codeoff;
 
 import java.math.BigInteger;
-import java.util.Arrays;
 
 public class SolverC1Counter {
 
@@ -9,19 +8,47 @@ public class SolverC1Counter {
     private static final int CELL_COUNT = SIZE * SIZE;
 
     private final int[][] orthNeighbors;
-    private final Integer[] fillOrder;
+    private final int[] fillOrder;
 
     // Counting state
     private BigInteger solutions = BigInteger.ZERO;
     private long nodesVisited = 0;
 
     // Safety limits to avoid infinite runtimes in the web server
-    private static final long MAX_NODES = 2_000_000L; // safe cap
+    public static final long DEFAULT_MAX_NODES = 2_000_000L; // safe cap
     private static final BigInteger MAX_SOLUTIONS = new BigInteger("1000000");
 
+    private final long maxNodes;
+
+    // Value ordering strategy and per-depth candidate buffers
+    private final ValueOrder valueOrder;
+    private final long seed;
+    private final ValueOrder.Context orderContext;
+    private final int[][] candidates;
+    private final int[] candidateCounts;
+
+    // JFR solve/progress/backtrack events for this search
+    private final SearchTelemetry telemetry = new SearchTelemetry("countC1");
+
     public SolverC1Counter() {
-        orthNeighbors = buildOrthNeighbors();
-        fillOrder = buildFillOrder();
+        this(DEFAULT_MAX_NODES);
+    }
+
+    public SolverC1Counter(long maxNodes) {
+        this(maxNodes, ValueOrder.ASCENDING, 0L);
+    }
+
+    public SolverC1Counter(long maxNodes, ValueOrder valueOrder, long seed) {
+        this.maxNodes = maxNodes;
+        BoardTopology topology = BoardTopology.GRID_5X5_C1;
+        orthNeighbors = topology.orthogonalNeighbors;
+        fillOrder = topology.fillOrder;
+        this.valueOrder = valueOrder;
+        this.seed = seed;
+        orderContext = new ValueOrder.Context(topology, CELL_COUNT, new int[0], seed);
+        candidates = new int[CELL_COUNT][CELL_COUNT];
+        candidateCounts = new int[CELL_COUNT];
+        telemetry.track(candidates, candidateCounts, 0);
     }
 
     // --------------------------------------------------------
@@ -32,7 +59,11 @@ public class SolverC1Counter {
         int[] grid = new int[CELL_COUNT];
         boolean[] used = new boolean[26]; // values 1..25
 
+        telemetry.begin();
         backtrack(grid, used, 0);
+        boolean capped = isNodeLimitReached() || solutions.compareTo(MAX_SOLUTIONS) >= 0;
+        telemetry.end(valueOrder, nodesVisited, solutions.longValue(), solutions.signum() > 0,
+                isNodeLimitReached(), !capped);
 
         return """
                 C1-only enumeration (partial, capped for safety)
@@ -45,16 +76,49 @@ public class SolverC1Counter {
                 """;
     }
 
+    public long getNodesVisited() {
+        return nodesVisited;
+    }
+
+    public BigInteger getSolutions() {
+        return solutions;
+    }
+
+    public ValueOrder getValueOrder() {
+        return valueOrder;
+    }
+
+    /** Publishes live progress of the next search to the given counters. */
+    public void setProgress(SearchProgress progress) {
+        telemetry.publishTo(progress);
+    }
+
+    public boolean isNodeLimitReached() {
+        return nodesVisited >= maxNodes;
+    }
+
+    /**
+     * Canonical query-string form of this run's parameters (same style as
+     * PuzzleSpec.toQuery), used as its ResultStore key.
+     */
+    public String toQuery() {
+        return "puzzle=countC1&maxNodes=" + maxNodes + "&order=" + valueOrder.id + "&seed=" + seed;
+    }
+
     // --------------------------------------------------------
     // Backtracking
     // --------------------------------------------------------
     private void backtrack(int[] grid, boolean[] used, int pos) {
 
         // Stop if we hit caps
-        if (nodesVisited >= MAX_NODES) return;
+        if (nodesVisited >= maxNodes) return;
         if (solutions.compareTo(MAX_SOLUTIONS) >= 0) return;
 
         nodesVisited++;
+        if ((nodesVisited & SearchTelemetry.SAMPLE_MASK) == 0) {
+            telemetry.sample(nodesVisited, solutions.longValue(), pos, grid, fillOrder);
+            SearchTelemetry.checkCancelled();
+        }
 
         // Full grid?
         if (pos == fillOrder.length) {
@@ -63,9 +127,12 @@ public class SolverC1Counter {
         }
 
         int idx = fillOrder[pos];
+        int[] values = candidates[pos];
+        int count = valueOrder.order(orderContext, idx, grid, used, values);
+        candidateCounts[pos] = count;
 
-        for (int v = 1; v <= 25; v++) {
-            if (used[v]) continue;
+        for (int i = 0; i < count; i++) {
+            int v = values[i];
 
             if (!respectsC1(grid, idx, v)) continue;
 
@@ -77,7 +144,10 @@ public class SolverC1Counter {
             grid[idx] = 0;
             used[v] = false;
 
-            if (nodesVisited >= MAX_NODES) return;
+            if (pos <= SearchTelemetry.BACKTRACK_DEPTH)
+                telemetry.backtracked(pos, v, nodesVisited);
+
+            if (nodesVisited >= maxNodes) return;
             if (solutions.compareTo(MAX_SOLUTIONS) >= 0) return;
         }
     }
@@ -90,37 +160,4 @@ public class SolverC1Counter {
         }
         return true;
     }
-
-    // --------------------------------------------------------
-    // Build neighbors and fill order
-    // --------------------------------------------------------
-    private int[][] buildOrthNeighbors() {
-        int[][] n = new int[CELL_COUNT][];
-        for (int r = 0; r < SIZE; r++) {
-            for (int c = 0; c < SIZE; c++) {
-                int idx = r * SIZE + c;
-                int[] t = new int[4];
-                int k = 0;
-
-                if (r > 0) t[k++] = (r - 1) * SIZE + c;
-                if (r < SIZE - 1) t[k++] = (r + 1) * SIZE + c;
-                if (c > 0) t[k++] = r * SIZE + (c - 1);
-                if (c < SIZE - 1) t[k++] = r * SIZE + (c + 1);
-
-                n[idx] = Arrays.copyOf(t, k);
-            }
-        }
-        return n;
-    }
-
-    private Integer[] buildFillOrder() {
-        Integer[] order = new Integer[CELL_COUNT];
-        for (int i = 0; i < CELL_COUNT; i++) order[i] = i;
-
-        // Sort by descending number of constraints (heuristic)
-        Arrays.sort(order, (a, b) ->
-                Integer.compare(orthNeighbors[b].length, orthNeighbors[a].length));
-
-        return order;
-    }
 }
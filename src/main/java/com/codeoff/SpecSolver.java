@@ -0,0 +1,111 @@
+package com.codeoff;
+
+/**
+ * Solves a {@link PuzzleSpec} with the engine and solver it selects.
+ */
+public final class SpecSolver {
+
+    /**
+     * Result of one solve: the row-major grid (null if unsolved) and its search
+     * statistics; stored is set when it was read back from a {@link ResultStore}.
+     */
+    public static final class Outcome {
+        public final PuzzleSpec spec;
+        public final int[] grid;
+        public final long nodes;
+        public final boolean limitReached;
+        public final long millis;
+        public final boolean stored;
+
+        Outcome(PuzzleSpec spec, int[] grid, long nodes, boolean limitReached, long millis) {
+            this(spec, grid, nodes, limitReached, millis, false);
+        }
+
+        Outcome(PuzzleSpec spec, int[] grid, long nodes, boolean limitReached, long millis, boolean stored) {
+            this.spec = spec;
+            this.grid = grid;
+            this.nodes = nodes;
+            this.limitReached = limitReached;
+            this.millis = millis;
+            this.stored = stored;
+        }
+
+        public boolean solved() {
+            return grid != null;
+        }
+
+        public SolveMetrics metrics() {
+            return new SolveMetrics(spec.engine.id,
+                    spec.engine == PuzzleSpec.Engine.BACKTRACK ? spec.valueOrder.id : "-", nodes, millis, stored);
+        }
+    }
+
+    private SpecSolver() {
+    }
+
+    public static Outcome solve(PuzzleSpec spec) {
+        return solve(spec, null);
+    }
+
+    /**
+     * Solves the spec, publishing live progress of a backtracking search to
+     * progress (may be null; the local engine publishes none).
+     */
+    public static Outcome solve(PuzzleSpec spec, SearchProgress progress) {
+        long start = System.nanoTime();
+        int[] grid;
+        long nodes;
+        boolean limitReached;
+
+        if (spec.engine == PuzzleSpec.Engine.LOCAL) {
+            LocalSearchSolver solver = new LocalSearchSolver(spec);
+            grid = solver.solve();
+            long millis = (System.nanoTime() - start) / 1_000_000L;
+            return new Outcome(spec, grid, solver.getMoves(), solver.isMoveLimitReached(), millis);
+        }
+        if (spec.engine == PuzzleSpec.Engine.MITM) {
+            MeetInTheMiddleSolver solver = new MeetInTheMiddleSolver(spec);
+            grid = solver.solve();
+            long millis = (System.nanoTime() - start) / 1_000_000L;
+            return new Outcome(spec, grid, solver.getNodesVisited(), solver.isNodeLimitReached(), millis);
+        }
+
+        switch (spec.type) {
+            case BASE_5X5 -> {
+                Solver5x5 solver = new Solver5x5(spec);
+                solver.setProgress(progress);
+                grid = solver.solve();
+                nodes = solver.getNodesVisited();
+                limitReached = solver.isNodeLimitReached();
+            }
+            case MEDIAN_5X5 -> {
+                Solver5x5Median solver = new Solver5x5Median(spec);
+                solver.setProgress(progress);
+                grid = solver.solve();
+                nodes = solver.getNodesVisited();
+                limitReached = solver.isNodeLimitReached();
+            }
+            case ROOK_6X6 -> {
+                Solver6x6 solver = new Solver6x6(spec);
+                solver.setProgress(progress);
+                grid = flatten(solver.solve());
+                nodes = solver.getNodesVisited();
+                limitReached = solver.isNodeLimitReached();
+            }
+            default -> throw new IllegalArgumentException("Unsupported puzzle: " + spec.type);
+        }
+
+        long millis = (System.nanoTime() - start) / 1_000_000L;
+        return new Outcome(spec, grid, nodes, limitReached, millis);
+    }
+
+    static int[] flatten(int[][] grid) {
+        if (grid == null) return null;
+        int size = grid.length;
+        int[] flat = new int[size * size];
+        for (int r = 0; r < size; r++) {
+            System.arraycopy(grid[r], 0, flat, r * size, size);
+        }
+        return flat;
+    }
+}
@@ -0,0 +1,194 @@
+package com.codeoff;
+
+import java.util.Random;
+
+/**
+ * Strategies for the order in which a solver tries values for a cell.
+ *
+ * Every strategy writes the still-unused values 1..maxValue for the cell
+ * into a caller-provided buffer and returns how many it wrote; the solver
+ * tries them in that order. Strategies only reorder (and, for PARITY,
+ * drop values that can never complete C3), so the set of solutions
+ * reachable is unchanged.
+ *
+ *  - ascending:   1, 2, 3, ... (the original behaviour)
+ *  - lcv:         least-constraining value first: values that remove the
+ *                 fewest candidates from empty neighbouring cells under C1/C2
+ *  - parity:      ascending, but the last empty C3 cell only gets values
+ *                 that make the prime-cell sum even
+ *  - extremes:    1, max, 2, max-1, ... (extreme values have fewer
+ *                 consecutive / diff-2 partners)
+ *  - centre-out:  middle values first
+ *  - random:      seeded shuffle per cell, reproducible for a given seed
+ */
+public enum ValueOrder {
+
+    ASCENDING("ascending") {
+        @Override
+        public int order(Context ctx, int idx, int[] grid, boolean[] used, int[] out) {
+            return ascending(ctx, used, out);
+        }
+    },
+
+    LEAST_CONSTRAINING("lcv") {
+        @Override
+        public int order(Context ctx, int idx, int[] grid, boolean[] used, int[] out) {
+            int n = ascending(ctx, used, out);
+            int[] scores = ctx.scores;
+            BoardTopology topo = ctx.topology;
+
+            for (int i = 0; i < n; i++) {
+                int v = out[i];
+                int score = 0;
+                for (int nb : topo.orthogonalNeighbors[idx]) {
+                    if (grid[nb] == 0) score += unused(ctx, used, v - 1) + unused(ctx, used, v + 1);
+                }
+                if (topo.diagonal) {
+                    for (int nb : topo.diagonalNeighbors[idx]) {
+                        if (grid[nb] == 0) score += unused(ctx, used, v - 2) + unused(ctx, used, v + 2);
+                    }
+                }
+                scores[v] = score;
+            }
+
+            // Stable insertion sort by ascending score (ties stay ascending by value)
+            for (int i = 1; i < n; i++) {
+                int v = out[i];
+                int j = i - 1;
+                while (j >= 0 && scores[out[j]] > scores[v]) {
+                    out[j + 1] = out[j];
+                    j--;
+                }
+                out[j + 1] = v;
+            }
+            return n;
+        }
+    },
+
+    PARITY("parity") {
+        @Override
+        public int order(Context ctx, int idx, int[] grid, boolean[] used, int[] out) {
+            int[] parityCells = ctx.parityCells;
+            if (parityCells.length == 0 || !ctx.isParityCell[idx]) {
+                return ascending(ctx, used, out);
+            }
+
+            int sum = 0;
+            int empty = 0;
+            for (int c : parityCells) {
+                if (grid[c] == 0) empty++;
+                else sum += grid[c];
+            }
+            if (empty != 1) {
+                return ascending(ctx, used, out);
+            }
+
+            // Last C3 cell: only values that make the prime-cell sum even
+            int n = 0;
+            for (int v = 1; v <= ctx.maxValue; v++) {
+                if (!used[v] && ((sum + v) & 1) == 0) out[n++] = v;
+            }
+            return n;
+        }
+    },
+
+    EXTREMES_FIRST("extremes") {
+        @Override
+        public int order(Context ctx, int idx, int[] grid, boolean[] used, int[] out) {
+            int n = 0;
+            for (int lo = 1, hi = ctx.maxValue; lo <= hi; lo++, hi--) {
+                if (!used[lo]) out[n++] = lo;
+                if (hi != lo && !used[hi]) out[n++] = hi;
+            }
+            return n;
+        }
+    },
+
+    CENTRE_OUT("centre-out") {
+        @Override
+        public int order(Context ctx, int idx, int[] grid, boolean[] used, int[] out) {
+            int n = 0;
+            int mid = (ctx.maxValue + 1) / 2;
+            for (int d = 0; d < ctx.maxValue; d++) {
+                int below = mid - d;
+                int above = mid + d + 1;
+                if (below >= 1 && !used[below]) out[n++] = below;
+                if (above <= ctx.maxValue && !used[above]) out[n++] = above;
+                if (below < 1 && above > ctx.maxValue) break;
+            }
+            return n;
+        }
+    },
+
+    RANDOM("random") {
+        @Override
+        public int order(Context ctx, int idx, int[] grid, boolean[] used, int[] out) {
+            int n = ascending(ctx, used, out);
+            Random random = ctx.random;
+            for (int i = n - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int t = out[i];
+                out[i] = out[j];
+                out[j] = t;
+            }
+            return n;
+        }
+    };
+
+    public final String id;
+
+    ValueOrder(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Writes the unused candidate values for cell idx into out, in try order.
+     *
+     * @return number of values written
+     */
+    public abstract int order(Context ctx, int idx, int[] grid, boolean[] used, int[] out);
+
+    public static ValueOrder fromId(String id) {
+        for (ValueOrder o : values()) {
+            if (o.id.equals(id)) return o;
+        }
+        throw new IllegalArgumentException("Unknown value order: " + id);
+    }
+
+    /**
+     * Per-search state shared by the strategies: board, value range,
+     * C3 cells (empty when C3 does not apply) and the seeded RNG.
+     */
+    public static final class Context {
+        final BoardTopology topology;
+        final int maxValue;
+        final int[] parityCells;
+        final boolean[] isParityCell;
+        final Random random;
+        final int[] scores;
+
+        public Context(BoardTopology topology, int maxValue, int[] parityCells, long seed) {
+            this.topology = topology;
+            this.maxValue = maxValue;
+            this.parityCells = parityCells;
+            this.isParityCell = new boolean[topology.cellCount];
+            for (int c : parityCells) isParityCell[c] = true;
+            this.random = new Random(seed);
+            this.scores = new int[maxValue + 1];
+        }
+    }
+
+    // ----------------- Helpers -----------------
+
+    private static int ascending(Context ctx, boolean[] used, int[] out) {
+        int n = 0;
+        for (int v = 1; v <= ctx.maxValue; v++) {
+            if (!used[v]) out[n++] = v;
+        }
+        return n;
+    }
+
+    private static int unused(Context ctx, boolean[] used, int v) {
+        return v >= 1 && v <= ctx.maxValue && !used[v] ? 1 : 0;
+    }
+}
@@ -0,0 +1,117 @@
+package com.codeoff;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link BatchValidator} on jdk.incubator.vector: each lane holds one grid.
+ *
+ * A pass over the cells loads one cell of SPECIES.length() grids at a time
+ * and accumulates, per lane, the seen-value bit masks, the prime-cell sum,
+ * the rook row/column masks and the top-row median counts; a second pass
+ * checks C1/C2 as |a - b| compares over the edge list. Grids left over
+ * after the last full vector go through the scalar check.
+ *
+ * Only loaded reflectively by BatchValidator, so the rest of the code runs
+ * without the incubator module.
+ */
+final class VectorBatchValidator extends BatchValidator {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    VectorBatchValidator(PuzzleSpec spec) {
+        super(spec);
+    }
+
+    @Override
+    public String implementation() {
+        return "vector (" + SPECIES.vectorBitSize() + "-bit, " + SPECIES.length() + " lanes)";
+    }
+
+    @Override
+    public void validate(GridBlock block, boolean[] valid) {
+        requireShape(block, valid);
+        int[][] cells = block.cells;
+        int n = block.count();
+        int bound = SPECIES.loopBound(n);
+        int g = 0;
+        for (; g < bound; g += SPECIES.length()) {
+            invalidLanes(cells, g).not().intoArray(valid, g);
+        }
+        for (; g < n; g++) {
+            valid[g] = checkGrid(cells, g);
+        }
+    }
+
+    private VectorMask<Integer> invalidLanes(int[][] cells, int g) {
+        IntVector zero = IntVector.zero(SPECIES);
+        IntVector one = IntVector.broadcast(SPECIES, 1);
+        VectorMask<Integer> bad = SPECIES.maskAll(false);
+        IntVector lo = zero;
+        IntVector hi = zero;
+        IntVector paritySum = zero;
+        IntVector rookRows = zero;
+        IntVector rookCols = zero;
+        IntVector below = zero;
+        VectorMask<Integer> medianPresent = SPECIES.maskAll(false);
+
+        for (int c = 0; c < cellCount; c++) {
+            IntVector v = IntVector.fromArray(SPECIES, cells[c], g);
+            bad = bad.or(v.lt(1)).or(v.compare(VectorOperators.GT, maxValue));
+
+            // Seen-value masks; shift counts are taken mod 32, so value 33 maps to bit 0 of hi
+            IntVector k = v.sub(1);
+            IntVector bit = one.lanewise(VectorOperators.LSHL, k);
+            VectorMask<Integer> low = k.lt(32);
+            lo = lo.lanewise(VectorOperators.OR, bit, low);
+            hi = hi.lanewise(VectorOperators.OR, bit, low.not());
+
+            if (isParityCell[c]) {
+                paritySum = paritySum.add(v);
+            }
+
+            if (rookValues.length > 0) {
+                IntVector rookBits = IntVector.broadcast(SPECIES, rookHi).blend(rookLo, low);
+                VectorMask<Integer> rook = bit.and(rookBits).compare(VectorOperators.NE, 0);
+                int rowBit = 1 << (c / size);
+                int colBit = 1 << (c % size);
+                bad = bad.or(rookRows.and(rowBit).compare(VectorOperators.NE, 0).and(rook))
+                         .or(rookCols.and(colBit).compare(VectorOperators.NE, 0).and(rook));
+                rookRows = rookRows.lanewise(VectorOperators.OR, rowBit, rook);
+                rookCols = rookCols.lanewise(VectorOperators.OR, colBit, rook);
+            }
+
+            if (medianTarget != 0 && c < size) {
+                below = below.lanewise(VectorOperators.ADD, 1, v.lt(medianTarget));
+                medianPresent = medianPresent.or(v.eq(medianTarget));
+            }
+        }
+
+        bad = bad.or(lo.compare(VectorOperators.NE, fullLo()))
+                 .or(hi.compare(VectorOperators.NE, fullHi()))
+                 .or(IntVector.fromArray(SPECIES, cells[fixedIndex], g).compare(VectorOperators.NE, fixedValue));
+        if (parityCells.length > 0) {
+            bad = bad.or(paritySum.and(1).compare(VectorOperators.NE, 0));
+        }
+        if (medianTarget != 0) {
+            bad = bad.or(medianPresent.not()).or(below.compare(VectorOperators.NE, size / 2));
+        }
+        if (bad.allTrue()) {
+            return bad;
+        }
+
+        for (int e = 0; e < orthogonalA.length; e++) {
+            IntVector a = IntVector.fromArray(SPECIES, cells[orthogonalA[e]], g);
+            IntVector b = IntVector.fromArray(SPECIES, cells[orthogonalB[e]], g);
+            bad = bad.or(a.sub(b).abs().eq(1));
+        }
+        for (int e = 0; e < diagonalA.length; e++) {
+            IntVector a = IntVector.fromArray(SPECIES, cells[diagonalA[e]], g);
+            IntVector b = IntVector.fromArray(SPECIES, cells[diagonalB[e]], g);
+            bad = bad.or(a.sub(b).abs().eq(2));
+        }
+        return bad;
+    }
+}
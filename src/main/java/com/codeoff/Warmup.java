@@ -0,0 +1,139 @@
+package com.codeoff;
+
+/**
+ * JIT warm-up for the solver hot loops.
+ *
+ * Runs rounds of representative solves and bounded counter runs until the
+ * backtracking methods are compiled. A round measures the total search
+ * nodes per second across all solvers; warm-up ends when either
+ *  - the configured number of rounds has run, or
+ *  - nodes/second changed by less than the tolerance for several
+ *    consecutive rounds (throughput has stabilised), or
+ *  - the time budget is spent.
+ *
+ * Configuration (system properties):
+ *   warmup.mode          before-listen (default), before-ready or off
+ *   warmup.iterations    maximum rounds (default 30)
+ *   warmup.stableRounds  consecutive stable rounds required (default 3)
+ *   warmup.tolerance     relative nodes/second change treated as stable (default 0.05)
+ *   warmup.maxMillis     time budget in milliseconds (default 20000)
+ *   warmup.nodes         node cap per bounded run in a round (default 200000)
+ */
+public class Warmup {
+
+    public enum Mode { BEFORE_LISTEN, BEFORE_READY, OFF }
+
+    public final Mode mode;
+    private final int iterations;
+    private final int stableRounds;
+    private final double tolerance;
+    private final long maxMillis;
+    private final long nodesPerRun;
+
+    public Warmup(Mode mode, int iterations, int stableRounds, double tolerance,
+                  long maxMillis, long nodesPerRun) {
+        this.mode = mode;
+        this.iterations = iterations;
+        this.stableRounds = stableRounds;
+        this.tolerance = tolerance;
+        this.maxMillis = maxMillis;
+        this.nodesPerRun = nodesPerRun;
+    }
+
+    public static Warmup fromSystemProperties() {
+        String mode = System.getProperty("warmup.mode", "before-listen");
+        return new Warmup(
+                switch (mode) {
+                    case "before-ready" -> Mode.BEFORE_READY;
+                    case "off" -> Mode.OFF;
+                    case "before-listen" -> Mode.BEFORE_LISTEN;
+                    default -> throw new IllegalArgumentException("Unknown warmup.mode: " + mode);
+                },
+                Integer.getInteger("warmup.iterations", 30),
+                Integer.getInteger("warmup.stableRounds", 3),
+                Double.parseDouble(System.getProperty("warmup.tolerance", "0.05")),
+                Long.getLong("warmup.maxMillis", 20_000L),
+                Long.getLong("warmup.nodes", 200_000L));
+    }
+
+    /**
+     * Outcome of a warm-up run.
+     */
+    public static class Report {
+        public final int rounds;
+        public final long millis;
+        public final double nodesPerSecond;
+        public final boolean stabilised;
+
+        Report(int rounds, long millis, double nodesPerSecond, boolean stabilised) {
+            this.rounds = rounds;
+            this.millis = millis;
+            this.nodesPerSecond = nodesPerSecond;
+            this.stabilised = stabilised;
+        }
+
+        @Override
+        public String toString() {
+            return "Warm-up finished after " + rounds + " rounds in " + millis + " ms, "
+                    + String.format("%.0f", nodesPerSecond) + " nodes/s"
+                    + (stabilised ? " (stabilised)" : " (round or time limit)");
+        }
+    }
+
+    public Report run() {
+        long start = System.nanoTime();
+        long deadline = start + maxMillis * 1_000_000L;
+
+        double previous = 0;
+        double current = 0;
+        int stable = 0;
+        int round = 0;
+
+        while (round < iterations && System.nanoTime() < deadline) {
+            round++;
+            current = runRound();
+
+            if (previous > 0 && Math.abs(current - previous) / previous < tolerance) {
+                stable++;
+            } else {
+                stable = 0;
+            }
+            previous = current;
+
+            if (stable >= stableRounds) {
+                break;
+            }
+        }
+
+        long millis = (System.nanoTime() - start) / 1_000_000L;
+        return new Report(round, millis, current, stable >= stableRounds);
+    }
+
+    // One round: every solver, each bounded so a round stays short
+    private double runRound() {
+        long t0 = System.nanoTime();
+        long nodes = 0;
+
+        Solver5x5 base = new Solver5x5();
+        base.setNodeLimit(nodesPerRun);
+        base.solve();
+        nodes += base.getNodesVisited();
+
+        Solver5x5Median median = new Solver5x5Median();
+        median.setNodeLimit(nodesPerRun);
+        median.solve();
+        nodes += median.getNodesVisited();
+
+        Solver6x6 rook = new Solver6x6();
+        rook.setNodeLimit(nodesPerRun);
+        rook.solve();
+        nodes += rook.getNodesVisited();
+
+        SolverC1Counter counter = new SolverC1Counter(nodesPerRun);
+        counter.countSummary();
+        nodes += counter.getNodesVisited();
+
+        long elapsed = Math.max(1, System.nanoTime() - t0);
+        return nodes * 1e9 / elapsed;
+    }
+}
@@ -2,48 +2,873 @@ package com.codeoff;
 
 import com.sun.net.httpserver.*;
 import java.io.*;
+import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
+import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
 
 public class WebServer {
 
+    // Responses at least this large are gzip-compressed when the client accepts it
+    private static final int GZIP_THRESHOLD = 1024;
+
+    // Endpoints exercised by a CDS training run (the median solve is too slow to include)
+    private static final String[] TRAINING_PATHS = {
+            "/", "/solve5x5", "/solve5x5?format=json", "/solve5x5?format=binary",
+            "/solve6x6", "/solve6x6?format=json", "/countC1"
+    };
+
+    // Stored results consulted before every solve and count; null when disabled (-Dstore.dir=)
+    private static final ResultStore STORE = openStore();
+
+    // Cost-based admission: cheap and heavy pools for searches, heavy pool for batches
+    private static final AdmissionController ADMISSION = AdmissionController.fromSystemProperties();
+
+    // Searches in flight; identical requests and progress streams share one run
+    private static final SearchRegistry SEARCHES = new SearchRegistry();
+
+    // Progress streams: one timer thread schedules every stream's snapshots
+    private static final long PROGRESS_INTERVAL_MILLIS = Long.getLong("progress.intervalMillis", 500L);
+    private static final ScheduledExecutorService PROGRESS_TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "progress");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Progress stream writes: one in flight per stream; a write stuck this long detaches its stream
+    private static final long PROGRESS_STALL_MILLIS = Long.getLong("progress.stallMillis", 10_000L);
+    private static final ExecutorService PROGRESS_WRITERS = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "progress-write");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final String COUNT_TITLE = "5×5 C1-Only Enumerator";
+
+    // Search-tree estimates: probes run on one daemon thread per core
+    private static final int DEFAULT_PROBES = 200_000;
+    private static final int MAX_PROBES = 10_000_000;
+    private static final ExecutorService ESTIMATE_POOL =
+            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+                Thread t = new Thread(r, "estimate");
+                t.setDaemon(true);
+                return t;
+            });
+
+    // Solution indexes by prefix, stored next to the result store
+    private static final SolutionIndex.Catalog SOLUTION_INDEXES =
+            new SolutionIndex.Catalog(STORE == null ? null : STORE.file().resolveSibling("indexes"));
+
+    // Batch endpoint: pool shared by all batch requests, per-puzzle default and maximum node caps, size cap
+    private static final BatchSolver BATCH_SOLVER =
+            new BatchSolver(Runtime.getRuntime().availableProcessors(), WebServer::solve);
+    private static final long BATCH_NODE_LIMIT = 10_000_000L;
+    private static final long MAX_BATCH_NODE_LIMIT = 100_000_000L;
+    private static final int MAX_BATCH = 100_000;
+
+    // Set once warm-up has finished (or is disabled); reported by /ready
+    private static volatile boolean ready;
+
     public static void main(String[] args) throws Exception {
 
-        HttpServer server = HttpServer.create(new InetSocketAddress(8080), 0);
+        if (args.length > 0 && args[0].equals("--cds-training")) {
+            runCdsTraining();
+            return;
+        }
+
+        Warmup warmup = Warmup.fromSystemProperties();
+        if (warmup.mode == Warmup.Mode.BEFORE_LISTEN) {
+            runWarmup(warmup);
+        }
+
+        HttpServer server = createServer(8080);
+
+        System.out.println("Solver WebServer running at http://localhost:8080/");
+        server.start();
+
+        if (warmup.mode == Warmup.Mode.BEFORE_READY) {
+            Thread t = new Thread(() -> runWarmup(warmup), "warmup");
+            t.setDaemon(true);
+            t.start();
+        } else if (warmup.mode == Warmup.Mode.OFF) {
+            ready = true;
+        }
+    }
+
+    private static void runWarmup(Warmup warmup) {
+        System.out.println("Warming up solvers...");
+        Warmup.Report report = warmup.run();
+        System.out.println(report);
+        ADMISSION.setNodesPerSecond(report.nodesPerSecond);
+        ready = true;
+    }
+
+    static HttpServer createServer(int port) throws IOException {
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
 
         server.createContext("/", exchange -> {
-            String html = HtmlRenderer.renderHomePage();
-            send(exchange, html);
+            ResponseBuffer out = ResponseBuffer.acquire();
+            HtmlRenderer.renderHomePage(out);
+            send(exchange, out, ResponseFormat.HTML);
         });
 
-        server.createContext("/solve5x5", exchange -> {
-            int[] grid = new Solver5x5().solve();
-            send(exchange, HtmlRenderer.renderGrid("5×5 Base Solver", grid));
+        // Liveness: the process is serving requests
+        server.createContext("/health", exchange -> sendStatus(exchange, 200, "ok"));
+
+        // Readiness: warm-up has finished and hot paths are compiled
+        server.createContext("/ready", exchange -> {
+            if (ready) {
+                sendStatus(exchange, 200, "ready");
+            } else {
+                sendStatus(exchange, 503, "warming up");
+            }
         });
 
-        server.createContext("/solveMedian", exchange -> {
-            Result median = new Solver5x5Median().solveAndGetResult();
-            send(exchange, HtmlRenderer.renderMedianResult(median));
+        // Searches are admitted by estimated cost (see AdmissionController) and run off the
+        // dispatcher thread; identical requests join the running search, stored results are
+        // answered directly
+        server.createContext("/solve5x5", solveEndpoint(PuzzleSpec.Type.BASE_5X5,
+                (exchange, outcome) -> sendGrid(exchange, "5×5 Base Solver", outcome)));
+
+        server.createContext("/solveMedian", solveEndpoint(PuzzleSpec.Type.MEDIAN_5X5, WebServer::sendMedian));
+
+        server.createContext("/solve6x6", solveEndpoint(PuzzleSpec.Type.ROOK_6X6,
+                (exchange, outcome) -> sendGrid(exchange, "6×6 Solver", outcome)));
+
+        server.createContext("/countC1", guarded(exchange ->
+                respondWhenDone(exchange, startCount(valueOrder(exchange), seed(exchange)), WebServer::sendCount)));
+
+        // Server-Sent Events: progress snapshots of the search for the same parameters, then its result
+        server.createContext("/progress", guarded(WebServer::handleProgress));
+
+        // Monte Carlo size of a full search tree, without running the search; admitted by probe count
+        server.createContext("/estimate", guarded(WebServer::handleEstimate));
+
+        // Solutions by rank below a prefix, from a subtree-count index built on first use;
+        // lookups run on the cheap pool, builds are admitted by their estimated nodes
+        server.createContext("/solutions", exchange -> ADMISSION.executeCheap(task(exchange, WebServer::handleSolutions)));
+
+        // One spec per line (query-string form, see PuzzleSpec); results stream back as NDJSON.
+        // Batches queue on the bulk pool and are refused when its queue is full
+        server.createContext("/solve/batch", exchange -> {
+            if (!ADMISSION.executeBulk(task(exchange, WebServer::handleBatch))) {
+                exchange.getResponseHeaders().set("Retry-After", "30");
+                sendStatus(exchange, 503, "Too many batches queued");
+            }
         });
 
-        server.createContext("/solve6x6", exchange -> {
-            int[][] grid = new Solver6x6().solve();
-            send(exchange, HtmlRenderer.renderGrid2D("6×6 Solver", grid));
+        return server;
+    }
+
+    private static void handleBatch(HttpExchange ex) throws IOException {
+        if (!ex.getRequestMethod().equals("POST")) {
+            sendStatus(ex, 405, "POST one puzzle spec per line");
+            return;
+        }
+
+        String limitParam = ResponseFormat.queryParam(ex.getRequestURI().getRawQuery(), "nodeLimit");
+        long defaultLimit = limitParam == null ? BATCH_NODE_LIMIT : Long.parseLong(limitParam);
+        if (defaultLimit < 1 || defaultLimit > MAX_BATCH_NODE_LIMIT) {
+            throw new IllegalArgumentException("nodeLimit must be 1.." + MAX_BATCH_NODE_LIMIT);
+        }
+
+        List<PuzzleSpec> specs = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(ex.getRequestBody(), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                if (specs.size() == MAX_BATCH) {
+                    throw new IllegalArgumentException("Batch exceeds " + MAX_BATCH + " puzzles");
+                }
+                try {
+                    PuzzleSpec spec = PuzzleSpec.parse(line);
+                    if (ResponseFormat.queryParam(line, "nodeLimit") == null) {
+                        spec = spec.withSearch(spec.valueOrder, spec.seed, defaultLimit);
+                    }
+                    if (spec.nodeLimit > MAX_BATCH_NODE_LIMIT) {
+                        throw new IllegalArgumentException("nodeLimit must be 1.." + MAX_BATCH_NODE_LIMIT);
+                    }
+                    specs.add(spec);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Line " + lineNo + ": " + e.getMessage());
+                }
+            }
+        }
+
+        ex.getResponseHeaders().add("Content-Type", "application/x-ndjson");
+        ex.sendResponseHeaders(200, 0); // chunked, one line per finished puzzle
+        try (OutputStream os = ex.getResponseBody()) {
+            BatchSolver.Summary summary = BATCH_SOLVER.solveAll(specs, item -> {
+                ResponseBuffer out = ResponseBuffer.acquire();
+                JsonRenderer.renderBatchItem(out, item);
+                out.appendByte('\n');
+                try {
+                    out.writeTo(os);
+                    os.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            ResponseBuffer out = ResponseBuffer.acquire();
+            JsonRenderer.renderBatchSummary(out, summary);
+            out.appendByte('\n');
+            out.writeTo(os);
+            System.out.println("Batch of " + summary.puzzles + " solved in " + summary.millis + " ms ("
+                    + String.format(Locale.ROOT, "%.1f", summary.puzzlesPerSecond()) + " puzzles/s)");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (UncheckedIOException e) {
+            // client went away; remaining puzzles were cancelled
+        }
+    }
+
+    /**
+     * Starts the server on an ephemeral port, serves one request per
+     * endpoint and exits. Run under -XX:ArchiveClassesAtExit (see run.sh)
+     * this records every class a real request touches into an AppCDS archive.
+     */
+    private static void runCdsTraining() throws IOException {
+        long start = System.nanoTime();
+        HttpServer server = createServer(0);
+        server.start();
+        int port = server.getAddress().getPort();
+        try {
+            for (String path : TRAINING_PATHS) {
+                HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+                conn.setRequestProperty("Accept-Encoding", "gzip");
+                try (InputStream in = conn.getInputStream()) {
+                    in.readAllBytes();
+                }
+                conn.disconnect();
+            }
+            // Load the median solver's classes without running its long search
+            new Solver5x5Median();
+        } finally {
+            server.stop(0);
+        }
+        System.out.println("CDS training run finished in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    private static ResultStore openStore() {
+        try {
+            return ResultStore.fromSystemProperties();
+        } catch (IOException e) {
+            System.out.println("Result store disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private interface Search<R> {
+        R run(AdmissionController.Ticket ticket, SearchProgress progress);
+    }
+
+    private interface Responder<R> {
+        void respond(HttpExchange ex, R result) throws IOException;
+    }
+
+    private interface EventWriter<R> {
+        void write(ResponseBuffer out, R result);
+    }
+
+    // Search refused by admission control; answered with 503
+    private static final class Rejected extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final transient AdmissionController.Ticket ticket;
+
+        Rejected(AdmissionController.Ticket ticket) {
+            super("Too much queued work; estimated cost " + ticket.estimatedMillis + " ms, "
+                    + ADMISSION.heavyReservedMillis() + " ms already admitted", null, false, false);
+            this.ticket = ticket;
+        }
+    }
+
+    private static HttpHandler solveEndpoint(PuzzleSpec.Type type, Responder<SpecSolver.Outcome> responder) {
+        return guarded(exchange -> respondWhenDone(exchange, startSolve(spec(exchange, type)), responder));
+    }
+
+    /**
+     * The search for the spec: its stored outcome, the run already in
+     * flight for the same parameters, or a newly admitted run. Results are
+     * stored under the request's spec, never the admission cap (which
+     * varies with measured throughput), and only when the capped run finished.
+     */
+    private static SearchRegistry.Running<SpecSolver.Outcome> startSolve(PuzzleSpec spec) {
+        String key = spec.toQuery();
+        SpecSolver.Outcome stored = STORE == null ? null : STORE.findSolution(spec);
+        if (stored != null) {
+            return SearchRegistry.completed(key, stored);
+        }
+        SearchRegistry.Running<SpecSolver.Outcome> run = SEARCHES.open(key);
+        if (run.claim()) {
+            start(run, () -> ADMISSION.admit(spec),
+                    (ticket, progress) -> STORE == null
+                            ? SpecSolver.solve(ticket.apply(spec), progress)
+                            : STORE.solveCapped(spec, ticket.apply(spec), progress),
+                    outcome -> outcome.limitReached);
+        }
+        return run;
+    }
+
+    /** As {@link #startSolve}, for a C1 count with the default node cap. */
+    private static SearchRegistry.Running<ResultStore.Count> startCount(ValueOrder order, long seed) {
+        long maxNodes = SolverC1Counter.DEFAULT_MAX_NODES;
+        String key = new SolverC1Counter(maxNodes, order, seed).toQuery();
+        ResultStore.Count stored = STORE == null ? null : STORE.findCount(key);
+        if (stored != null) {
+            return SearchRegistry.completed(key, stored);
+        }
+        SearchRegistry.Running<ResultStore.Count> run = SEARCHES.open(key);
+        if (run.claim()) {
+            start(run, () -> ADMISSION.admitCount(maxNodes),
+                    (ticket, progress) -> {
+                        SolverC1Counter counter = new SolverC1Counter(ticket.nodeLimit, order, seed);
+                        counter.setProgress(progress);
+                        return STORE == null ? ResultStore.run(counter) : STORE.countCapped(key, counter);
+                    },
+                    count -> count.limitReached);
+        }
+        return run;
+    }
+
+    // The admission estimate (a few hundred probes) runs on the cheap pool, not the dispatcher
+    private static <R> void start(SearchRegistry.Running<R> run,
+                                  Supplier<AdmissionController.Ticket> admission,
+                                  Search<R> search, Predicate<R> limitReached) {
+        ADMISSION.executeCheap(() -> {
+            try {
+                runAdmitted(run, admission.get(), search, limitReached);
+            } catch (RuntimeException e) {
+                System.out.println("Admission of " + run.key + " failed: " + e);
+                SEARCHES.fail(run, e);
+            }
         });
+    }
 
-        server.createContext("/countC1", exchange -> {
-            String result = new SolverC1Counter().countSummary();
-            send(exchange, HtmlRenderer.renderText("5×5 C1-Only Enumerator", result));
+    /**
+     * Runs the search on the pool the ticket selects and completes the run
+     * with its result. A cheap run cut short by its class cap is retried on
+     * the heavy pool; if the heavy budget is full its partial result is kept.
+     */
+    private static <R> void runAdmitted(SearchRegistry.Running<R> run, AdmissionController.Ticket ticket,
+                                        Search<R> search, Predicate<R> limitReached) {
+        if (ticket.decision == AdmissionController.Decision.REJECT) {
+            SEARCHES.fail(run, new Rejected(ticket));
+            return;
+        }
+        ADMISSION.execute(ticket, () -> {
+            try {
+                R result = search.run(ticket, run.progress);
+                if (limitReached.test(result) && ticket.escalates()) {
+                    AdmissionController.Ticket heavy = ADMISSION.escalate(ticket);
+                    if (heavy.decision != AdmissionController.Decision.REJECT) {
+                        runAdmitted(run, heavy, search, limitReached);
+                        return;
+                    }
+                }
+                SEARCHES.complete(run, result, ticket.describe());
+            } catch (RuntimeException e) {
+                System.out.println("Search " + run.key + " failed: " + e);
+                SEARCHES.fail(run, e);
+            }
         });
+    }
 
-        System.out.println("Solver WebServer running at http://localhost:8080/");
-        server.start();
+    /**
+     * Runs the handler on the heavy pool holding estimatedNodes worth of
+     * its budget until it finishes, or answers 503 if the budget is full.
+     */
+    private static void runHeavy(HttpExchange ex, double estimatedNodes, HttpHandler handler) throws IOException {
+        AdmissionController.Ticket ticket = ADMISSION.admitWork(estimatedNodes);
+        if (ticket.decision == AdmissionController.Decision.REJECT) {
+            sendError(ex, new Rejected(ticket));
+            return;
+        }
+        ex.getResponseHeaders().set("X-Admission", ticket.describe());
+        ADMISSION.execute(ticket, task(ex, handler));
+    }
+
+    // Answers the exchange once the run completes, on the thread that completed it
+    private static <R> void respondWhenDone(HttpExchange ex, SearchRegistry.Running<R> run, Responder<R> responder) {
+        run.result.whenComplete((result, error) -> task(ex, exchange -> {
+            if (error != null) {
+                sendError(exchange, error);
+                return;
+            }
+            if (run.admission != null) {
+                exchange.getResponseHeaders().set("X-Admission", run.admission);
+            }
+            responder.respond(exchange, result);
+        }).run());
+    }
+
+    private static void sendError(HttpExchange ex, Throwable error) throws IOException {
+        if (error instanceof Rejected rejected) {
+            ex.getResponseHeaders().set("X-Admission", rejected.ticket.describe());
+            ex.getResponseHeaders().set("Retry-After", "30");
+            sendStatus(ex, 503, rejected.getMessage());
+        } else if (error instanceof IllegalArgumentException) {
+            sendStatus(ex, 400, error.getMessage());
+        } else {
+            sendStatus(ex, 500, "Search failed: " + error);
+        }
+    }
+
+    // ----------------- Progress streams -----------------
+
+    /**
+     * /progress?puzzle=solve5x5|solveMedian|solve6x6|countC1 plus that
+     * endpoint's parameters. Event-stream clients get "progress" events
+     * every progress.intervalMillis, then one "done" event with the JSON
+     * result (or "failed"); other clients get a page that subscribes.
+     */
+    private static void handleProgress(HttpExchange ex) throws IOException {
+        String query = ex.getRequestURI().getRawQuery();
+        String puzzle = ResponseFormat.queryParam(query, "puzzle");
+        if (puzzle == null) {
+            throw new IllegalArgumentException("Missing puzzle: solve5x5, solveMedian, solve6x6 or countC1");
+        }
+        String accept = ex.getRequestHeaders().getFirst("Accept");
+        boolean stream = accept != null && accept.contains("text/event-stream");
+
+        switch (puzzle) {
+            case "countC1" -> {
+                if (!stream) {
+                    sendProgressPage(ex, COUNT_TITLE);
+                    return;
+                }
+                ValueOrder order = valueOrder(ex);
+                long seed = seed(ex);
+                streamProgress(ex, startCount(order, seed),
+                        (out, count) -> JsonRenderer.renderText(out, COUNT_TITLE, count.summary, countMetrics(count)));
+            }
+            case "solveMedian" -> {
+                PuzzleSpec spec = PuzzleSpec.fromQuery(PuzzleSpec.Type.MEDIAN_5X5, query);
+                if (!stream) {
+                    sendProgressPage(ex, "5×5 Median Solver");
+                    return;
+                }
+                streamProgress(ex, startSolve(spec), (out, outcome) -> JsonRenderer.renderMedianResult(out,
+                        outcome.solved() ? new Result(outcome.grid, outcome.grid[24]) : null, outcome.metrics()));
+            }
+            default -> {
+                PuzzleSpec.Type type = PuzzleSpec.Type.fromId(puzzle);
+                String title = type == PuzzleSpec.Type.ROOK_6X6 ? "6×6 Solver" : "5×5 Base Solver";
+                PuzzleSpec spec = PuzzleSpec.fromQuery(type, query);
+                if (!stream) {
+                    sendProgressPage(ex, title);
+                    return;
+                }
+                streamProgress(ex, startSolve(spec), (out, outcome) ->
+                        JsonRenderer.renderGrid(out, title, outcome.grid, outcome.spec.size(), outcome.metrics()));
+            }
+        }
+    }
+
+    /**
+     * /estimate?puzzle=solve5x5|solveMedian|solve6x6|countC1 plus the
+     * spec's parameters, probes (default 200000) and stratify (prefix depth
+     * 0-4, default 0 for plain Knuth sampling); seed fixes the result.
+     */
+    private static void handleEstimate(HttpExchange ex) throws IOException {
+        String query = ex.getRequestURI().getRawQuery();
+        String puzzle = ResponseFormat.queryParam(query, "puzzle");
+        if (puzzle == null) {
+            throw new IllegalArgumentException("Missing puzzle: solve5x5, solveMedian, solve6x6 or countC1");
+        }
+        String probesParam = ResponseFormat.queryParam(query, "probes");
+        String stratifyParam = ResponseFormat.queryParam(query, "stratify");
+        int probes = probesParam == null ? DEFAULT_PROBES : Integer.parseInt(probesParam);
+        int stratify = stratifyParam == null ? 0 : Integer.parseInt(stratifyParam);
+        if (probes > MAX_PROBES) {
+            throw new IllegalArgumentException("probes must be at most " + MAX_PROBES);
+        }
+
+        SearchTreeEstimator estimator;
+        String puzzleTitle;
+        String key;
+        if (puzzle.equals("countC1")) {
+            estimator = SearchTreeEstimator.forC1Count();
+            puzzleTitle = COUNT_TITLE;
+            key = "puzzle=countC1";
+        } else {
+            PuzzleSpec spec = PuzzleSpec.fromQuery(PuzzleSpec.Type.fromId(puzzle),
+                    withoutParams(query, "probes", "stratify"));
+            estimator = SearchTreeEstimator.forSpec(spec);
+            puzzleTitle = switch (spec.type) {
+                case BASE_5X5 -> "5×5 Base Solver";
+                case MEDIAN_5X5 -> "5×5 Median Solver";
+                case ROOK_6X6 -> "6×6 Solver";
+            };
+            key = spec.toQuery();
+        }
+        String title = "Search-Tree Estimate: " + puzzleTitle;
+
+        runHeavy(ex, estimator.costNodes(probes, stratify), exchange -> {
+            SearchTreeEstimator.Estimate estimate = estimator.estimate(probes, seed(exchange), stratify, ESTIMATE_POOL);
+            ResponseFormat format = ResponseFormat.negotiate(exchange);
+            ResponseBuffer out = ResponseBuffer.acquire();
+            switch (format) {
+                case JSON -> JsonRenderer.renderEstimate(out, title, key, estimate);
+                case BINARY, TEXT -> {
+                    out.append(estimate.describe());
+                    format = ResponseFormat.TEXT;
+                }
+                default -> HtmlRenderer.renderText(out, title, estimate.describe(), null);
+            }
+            send(exchange, out, format);
+        });
+    }
+
+    /**
+     * /solutions?puzzle=solve5x5|countC1&prefix=v,v,...&depth=d (plus the
+     * fixed cell for solve5x5, and nodeLimit for the build), then one of:
+     * k (and n) for the solutions from rank k in lexicographic fill order,
+     * random=n (and seed) for uniform samples, or rank=25 row-major values
+     * for a solution's k. Without these the index itself is described.
+     */
+    private static void handleSolutions(HttpExchange ex) throws IOException {
+        String query = ex.getRequestURI().getRawQuery();
+        String puzzle = ResponseFormat.queryParam(query, "puzzle");
+        if (puzzle == null) {
+            throw new IllegalArgumentException("Missing puzzle: solve5x5 or countC1");
+        }
+        SolutionIndex.Space space;
+        String title;
+        if (puzzle.equals("countC1")) {
+            space = SolutionIndex.Space.C1;
+            title = COUNT_TITLE;
+        } else {
+            space = SolutionIndex.Space.of(PuzzleSpec.fromQuery(PuzzleSpec.Type.fromId(puzzle),
+                    withoutParams(query, "prefix", "depth", "nodeLimit", "k", "n", "random", "rank")));
+            title = "5×5 Base Solver";
+        }
+        String depthParam = ResponseFormat.queryParam(query, "depth");
+        String limitParam = ResponseFormat.queryParam(query, "nodeLimit");
+        int[] prefix = SolutionIndex.parseValues(ResponseFormat.queryParam(query, "prefix"));
+        int depth = depthParam == null ? SolutionIndex.DEFAULT_DEPTH : Integer.parseInt(depthParam);
+        long nodeLimit = limitParam == null ? SolutionIndex.DEFAULT_NODE_LIMIT : Long.parseLong(limitParam);
+
+        SolutionIndex index = SOLUTION_INDEXES.find(space, prefix, depth);
+        if (index != null) {
+            sendSolutions(ex, index, title);
+            return;
+        }
+        runHeavy(ex, SolutionIndex.buildCost(space, prefix, depth, nodeLimit), exchange ->
+                sendSolutions(exchange, SOLUTION_INDEXES.get(space, prefix, depth, nodeLimit), title));
+    }
+
+    // The solutions the query asks for (k, random or rank) from a built index
+    private static void sendSolutions(HttpExchange ex, SolutionIndex index, String title) throws IOException {
+        String query = ex.getRequestURI().getRawQuery();
+        String k = ResponseFormat.queryParam(query, "k");
+        String random = ResponseFormat.queryParam(query, "random");
+        String rank = ResponseFormat.queryParam(query, "rank");
+        long[] ranks;
+        List<int[]> grids = new ArrayList<>();
+        if (rank != null) {
+            int[] grid = SolutionIndex.parseValues(rank);
+            ranks = new long[]{index.rank(grid)};
+            grids.add(grid);
+        } else if (random != null) {
+            ranks = index.sample(Integer.parseInt(random), seed(ex));
+            for (long r : ranks) grids.addAll(index.solutions(r, 1));
+        } else if (k != null) {
+            String n = ResponseFormat.queryParam(query, "n");
+            long from = Long.parseLong(k);
+            grids = index.solutions(from, n == null ? 1 : Integer.parseInt(n));
+            ranks = new long[grids.size()];
+            for (int i = 0; i < ranks.length; i++) ranks[i] = from + i;
+        } else {
+            ranks = new long[0];
+        }
+
+        String pageTitle = "Solutions: " + title;
+        ResponseFormat format = ResponseFormat.negotiate(ex);
+        ResponseBuffer out = ResponseBuffer.acquire();
+        switch (format) {
+            case JSON -> JsonRenderer.renderSolutions(out, pageTitle, index, ranks, grids);
+            case BINARY, TEXT -> {
+                HtmlRenderer.writeSolutions(out, index.describe(), ranks, grids);
+                format = ResponseFormat.TEXT;
+            }
+            default -> HtmlRenderer.renderSolutions(out, pageTitle, index.describe(), ranks, grids);
+        }
+        send(ex, out, format);
+    }
+
+    // The query string without the given keys (for parameters a parser does not accept)
+    private static String withoutParams(String query, String... keys) {
+        if (query == null) return null;
+        StringBuilder kept = new StringBuilder();
+        pairs:
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            for (String key : keys) {
+                if (name.equals(key)) continue pairs;
+            }
+            if (kept.length() > 0) kept.append('&');
+            kept.append(pair);
+        }
+        return kept.toString();
+    }
+
+    private static void sendProgressPage(HttpExchange ex, String title) throws IOException {
+        ResponseBuffer out = ResponseBuffer.acquire();
+        HtmlRenderer.renderProgressPage(out, title);
+        send(ex, out, ResponseFormat.HTML);
+    }
+
+    private static <R> void streamProgress(HttpExchange ex, SearchRegistry.Running<R> run,
+                                           EventWriter<R> done) throws IOException {
+        Headers headers = ex.getResponseHeaders();
+        headers.add("Content-Type", "text/event-stream; charset=utf-8");
+        headers.add("Cache-Control", "no-cache");
+        ex.sendResponseHeaders(200, 0); // chunked, open until the search completes
+        new ProgressStream<>(ex, run, done).start();
+    }
+
+    /**
+     * One attached observer. The timer thread only schedules: each tick
+     * hands the stream to a writer thread, which renders the run's latest
+     * snapshot and writes it as an event, so a client that stops reading
+     * holds up its own stream and no other. Ticks that find a write still
+     * in flight are skipped; a write stuck for progress.stallMillis detaches
+     * the stream and closes its exchange (on a writer thread, as closing
+     * flushes too). Completion of the run triggers a final write of the
+     * result, after which the stream closes. A client that disconnects only
+     * detaches; the search keeps running for others.
+     */
+    private static final class ProgressStream<R> implements Runnable {
+        private final HttpExchange ex;
+        private final OutputStream os;
+        private final SearchRegistry.Running<R> run;
+        private final EventWriter<R> done;
+        private ScheduledFuture<?> timer;
+        private boolean writing;
+        private long writeStartNanos;
+        private boolean closed;
+
+        ProgressStream(HttpExchange ex, SearchRegistry.Running<R> run, EventWriter<R> done) {
+            this.ex = ex;
+            this.os = ex.getResponseBody();
+            this.run = run;
+            this.done = done;
+        }
+
+        synchronized void start() {
+            run.attach();
+            timer = PROGRESS_TIMER.scheduleAtFixedRate(this, 0, PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            run.result.whenComplete((result, error) -> PROGRESS_TIMER.execute(this));
+        }
+
+        @Override
+        public synchronized void run() {
+            if (closed) return;
+            if (writing) {
+                if (System.nanoTime() - writeStartNanos > PROGRESS_STALL_MILLIS * 1_000_000L) {
+                    System.out.println("Progress stream for " + run.key + " stalled; detaching");
+                    close();
+                }
+                return;
+            }
+            writing = true;
+            writeStartNanos = System.nanoTime();
+            PROGRESS_WRITERS.execute(this::write);
+        }
+
+        // On a writer thread, without the lock
+        private void write() {
+            ResponseBuffer out = ResponseBuffer.acquire();
+            boolean finished = run.result.isDone();
+            if (!finished) {
+                out.append("event: progress\ndata: ");
+                JsonRenderer.renderProgress(out, run.progress.snapshot(), run.observers());
+            } else {
+                try {
+                    R result = run.result.join();
+                    out.append("event: done\ndata: ");
+                    done.write(out, result);
+                } catch (CompletionException e) {
+                    out.append("event: failed\ndata: {\"error\":").appendJsonString(String.valueOf(e.getCause().getMessage()))
+                       .appendByte('}');
+                }
+            }
+            out.append("\n\n");
+            boolean failed = false;
+            try {
+                out.writeTo(os);
+                os.flush();
+            } catch (IOException e) {
+                failed = true; // client went away
+            }
+            synchronized (this) {
+                writing = false;
+                if (failed || finished) {
+                    close();
+                } else if (run.result.isDone()) {
+                    run(); // completed during the write: send the result now
+                }
+            }
+        }
+
+        private void close() {
+            if (closed) return;
+            closed = true;
+            timer.cancel(false);
+            run.detach();
+            PROGRESS_WRITERS.execute(ex::close);
+        }
+    }
+
+    // Handler run on a worker pool; failures close the exchange
+    private static Runnable task(HttpExchange ex, HttpHandler handler) {
+        HttpHandler guarded = guarded(handler);
+        return () -> {
+            try {
+                guarded.handle(ex);
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Request " + ex.getRequestURI() + " failed: " + e);
+                ex.close();
+            }
+        };
+    }
+
+    // Stored outcome for the spec if there is one, otherwise a fresh solve (stored when slow)
+    private static SpecSolver.Outcome solve(PuzzleSpec spec) {
+        return STORE == null ? SpecSolver.solve(spec) : STORE.solve(spec);
+    }
+
+    /**
+     * Answers 400 with the message when a handler rejects its parameters.
+     */
+    private static HttpHandler guarded(HttpHandler handler) {
+        return exchange -> {
+            try {
+                handler.handle(exchange);
+            } catch (IllegalArgumentException e) {
+                sendStatus(exchange, 400, e.getMessage());
+            }
+        };
+    }
+
+    // Puzzle variant and search options from the query string (see PuzzleSpec)
+    private static PuzzleSpec spec(HttpExchange ex, PuzzleSpec.Type type) {
+        return PuzzleSpec.fromQuery(type, ex.getRequestURI().getRawQuery());
+    }
+
+    // ?order=ascending|lcv|parity|extremes|centre-out|random
+    private static ValueOrder valueOrder(HttpExchange ex) {
+        String id = ResponseFormat.queryParam(ex.getRequestURI().getRawQuery(), "order");
+        return id == null ? ValueOrder.ASCENDING : ValueOrder.fromId(id);
+    }
+
+    // ?seed=<long> for randomized orderings
+    private static long seed(HttpExchange ex) {
+        String seed = ResponseFormat.queryParam(ex.getRequestURI().getRawQuery(), "seed");
+        return seed == null ? 0L : Long.parseLong(seed);
+    }
+
+    private static void sendGrid(HttpExchange ex, String title, SpecSolver.Outcome outcome) throws IOException {
+        int[] grid = outcome.grid;
+        int size = outcome.spec.size();
+        SolveMetrics metrics = outcome.metrics();
+        ResponseFormat format = ResponseFormat.negotiate(ex);
+        ResponseBuffer out = ResponseBuffer.acquire();
+        switch (format) {
+            case JSON -> JsonRenderer.renderGrid(out, title, grid, size, metrics);
+            case BINARY -> GridCodec.write(out, grid, size);
+            case TEXT -> HtmlRenderer.writeGrid(out, grid, size);
+            default -> HtmlRenderer.renderGrid(out, title, grid, size, metrics);
+        }
+        send(ex, out, format);
+    }
+
+    private static void sendMedian(HttpExchange ex, SpecSolver.Outcome outcome) throws IOException {
+        Result median = outcome.solved() ? new Result(outcome.grid, outcome.grid[24]) : null;
+        SolveMetrics metrics = outcome.metrics();
+        ResponseFormat format = ResponseFormat.negotiate(ex);
+        ResponseBuffer out = ResponseBuffer.acquire();
+        switch (format) {
+            case JSON -> JsonRenderer.renderMedianResult(out, median, metrics);
+            case BINARY -> GridCodec.write(out, outcome.grid, 5);
+            case TEXT -> HtmlRenderer.writeGrid(out, outcome.grid, 5);
+            default -> HtmlRenderer.renderMedianResult(out, median, metrics);
+        }
+        send(ex, out, format);
+    }
+
+    private static void sendCount(HttpExchange ex, ResultStore.Count count) throws IOException {
+        sendText(ex, COUNT_TITLE, count.summary, countMetrics(count));
+    }
+
+    private static SolveMetrics countMetrics(ResultStore.Count count) {
+        return new SolveMetrics(PuzzleSpec.Engine.BACKTRACK.id,
+                ResponseFormat.queryParam(count.query, "order"), count.nodes, count.millis, count.stored);
+    }
+
+    private static void sendText(HttpExchange ex, String title, String text,
+                                 SolveMetrics metrics) throws IOException {
+        ResponseFormat format = ResponseFormat.negotiate(ex);
+        ResponseBuffer out = ResponseBuffer.acquire();
+        switch (format) {
+            case JSON -> JsonRenderer.renderText(out, title, text, metrics);
+            // Text results have no grid; machine clients get the plain text
+            case BINARY, TEXT -> {
+                out.append(text);
+                format = ResponseFormat.TEXT;
+            }
+            default -> HtmlRenderer.renderText(out, title, text, metrics);
+        }
+        send(ex, out, format);
+    }
+
+    private static void sendStatus(HttpExchange ex, int status, String text) throws IOException {
+        ResponseBuffer out = ResponseBuffer.acquire();
+        out.append(text).appendByte('\n');
+        send(ex, status, out, ResponseFormat.TEXT);
+    }
+
+    private static void send(HttpExchange ex, ResponseBuffer out, ResponseFormat format) throws IOException {
+        send(ex, 200, out, format);
+    }
+
+    private static void send(HttpExchange ex, int status, ResponseBuffer out, ResponseFormat format) throws IOException {
+        Headers headers = ex.getResponseHeaders();
+        headers.add("Content-Type", format.contentType);
+        headers.add("Vary", "Accept, Accept-Encoding");
+
+        if (out.length() >= GZIP_THRESHOLD && acceptsGzip(ex)) {
+            headers.add("Content-Encoding", "gzip");
+            ex.sendResponseHeaders(status, 0); // chunked
+            try (OutputStream os = new GZIPOutputStream(ex.getResponseBody(), 8192)) { out.writeTo(os); }
+            return;
+        }
+
+        ex.sendResponseHeaders(status, out.length());
+        try (OutputStream os = ex.getResponseBody()) { out.writeTo(os); }
     }
 
-    private static void send(HttpExchange ex, String response) throws IOException {
-        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
-        ex.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
-        ex.sendResponseHeaders(200, bytes.length);
-        try (OutputStream os = ex.getResponseBody()) { os.write(bytes); }
+    private static boolean acceptsGzip(HttpExchange ex) {
+        String enc = ex.getRequestHeaders().getFirst("Accept-Encoding");
+        return enc != null && enc.contains("gzip");
     }
 }